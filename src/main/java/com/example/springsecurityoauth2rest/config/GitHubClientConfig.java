@@ -0,0 +1,63 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class GitHubClientConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor gitHubHttpExecutor(GitHubProperties properties) {
+        GitHubProperties.Api api = properties.getApi();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Runs the HTTP client's response handling; bounded so a GitHub stall cannot pile up threads.
+        // Never on the caller's thread, which may be the client's selector thread: GitHubApiClient
+        // refuses new calls while the queue is full, so a rejection here is only a rare race
+        return new ThreadPoolExecutor(
+                api.getExecutorThreads(), api.getExecutorThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(api.getExecutorQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "github-http-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor gitHubRefreshExecutor(GitHubProperties properties) {
+        GitHubProperties.RefreshAhead refreshAhead = properties.getRefreshAhead();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Background refresh of hot identities; when full, refreshes are rejected rather than queued without bound
+        return new ThreadPoolExecutor(
+                refreshAhead.getThreads(), refreshAhead.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshAhead.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "github-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean
+    public HttpClient gitHubHttpClient(GitHubProperties properties,
+                                       @Qualifier("gitHubHttpExecutor") ThreadPoolExecutor gitHubHttpExecutor) {
+        // HTTP/2 multiplexes concurrent validations over one TLS connection to GitHub
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getApi().getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(gitHubHttpExecutor)
+                .build();
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "github")
+public class GitHubProperties {
+
+    private final Api api = new Api();
+    private final Cache cache = new Cache();
+    private final RefreshAhead refreshAhead = new RefreshAhead();
+    private final SharedCache sharedCache = new SharedCache();
+    private final Snapshot snapshot = new Snapshot();
+    private final NegativeCache negativeCache = new NegativeCache();
+    private final RateLimit rateLimit = new RateLimit();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    public Api getApi() {
+        return api;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public RefreshAhead getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public SharedCache getSharedCache() {
+        return sharedCache;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    // HTTP client for the GitHub REST API
+    public static class Api {
+
+        // Point at a stub server for load tests, or at a GitHub Enterprise API root
+        private String baseUrl = "https://api.github.com";
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        // Upper bound on waiting for a complete response
+        private Duration readTimeout = Duration.ofSeconds(5);
+
+        private int executorThreads = 4;
+
+        private int executorQueueCapacity = 256;
+
+        // Open the connection at startup so the first validation does not pay for the TLS handshake
+        private boolean warmUp = true;
+
+        // Fill in the primary email from /user/emails when the profile hides it; needs the user:email scope
+        private boolean fetchPrimaryEmail = false;
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public int getExecutorThreads() {
+            return executorThreads;
+        }
+
+        public void setExecutorThreads(int executorThreads) {
+            this.executorThreads = executorThreads;
+        }
+
+        public int getExecutorQueueCapacity() {
+            return executorQueueCapacity;
+        }
+
+        public void setExecutorQueueCapacity(int executorQueueCapacity) {
+            this.executorQueueCapacity = executorQueueCapacity;
+        }
+
+        public boolean isWarmUp() {
+            return warmUp;
+        }
+
+        public void setWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+        }
+
+        public boolean isFetchPrimaryEmail() {
+            return fetchPrimaryEmail;
+        }
+
+        public void setFetchPrimaryEmail(boolean fetchPrimaryEmail) {
+            this.fetchPrimaryEmail = fetchPrimaryEmail;
+        }
+    }
+
+    // Identity cache: token digest -> validated GitHub identity
+    public static class Cache {
+
+        // How long a validated identity is trusted before GitHub is asked again
+        private Duration ttl = Duration.ofMinutes(5);
+
+        // Upper bound on cached identities; least valuable entries are evicted first
+        private long maximumSize = 10_000;
+
+        // How long past its TTL an identity may still be served while GitHub is unavailable
+        private Duration maxStaleness = Duration.ofMinutes(30);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        public void setMaxStaleness(Duration maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+    }
+
+    // Background revalidation of frequently used identities before their TTL runs out
+    public static class RefreshAhead {
+
+        private boolean enabled = true;
+
+        // Fraction of the TTL after which a hot identity is refreshed in the background
+        private double fraction = 0.8;
+
+        // Accesses since the last validation for an identity to count as hot
+        private int minHits = 10;
+
+        private int threads = 2;
+
+        // Refreshes beyond this are dropped; the entry is simply revalidated on expiry instead
+        private int queueCapacity = 128;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getFraction() {
+            return fraction;
+        }
+
+        public void setFraction(double fraction) {
+            this.fraction = fraction;
+        }
+
+        public int getMinHits() {
+            return minHits;
+        }
+
+        public void setMinHits(int minHits) {
+            this.minHits = minHits;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    // Memory-mapped second level behind the identity cache, shared by instances on one host
+    public static class SharedCache {
+
+        private boolean enabled = false;
+
+        // Every instance on the host must use the same file, slot count and slot size
+        private String path = System.getProperty("java.io.tmpdir") + "/spring-auth-github/identity-cache.bin";
+
+        // Power of two; the file takes slots * slot-size bytes
+        private int slots = 16_384;
+
+        // Identities whose encoding does not fit are kept in the local cache only
+        private int slotSize = 512;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getSlots() {
+            return slots;
+        }
+
+        public void setSlots(int slots) {
+            this.slots = slots;
+        }
+
+        public int getSlotSize() {
+            return slotSize;
+        }
+
+        public void setSlotSize(int slotSize) {
+            this.slotSize = slotSize;
+        }
+    }
+
+    // Identity cache written on graceful shutdown and restored at startup
+    public static class Snapshot {
+
+        private boolean enabled = true;
+
+        // One per instance: another instance on the host would load and delete this one's snapshot.
+        // application.properties keys the default by server.port
+        private String path = System.getProperty("java.io.tmpdir") + "/spring-auth-github/identity-snapshot.bin";
+
+        // Startup stops restoring after this long and carries on with what it has
+        private Duration loadBudget = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Duration getLoadBudget() {
+            return loadBudget;
+        }
+
+        public void setLoadBudget(Duration loadBudget) {
+            this.loadBudget = loadBudget;
+        }
+    }
+
+    // Memory of tokens GitHub rejected with 401
+    public static class NegativeCache {
+
+        // How long a rejected token is remembered at most
+        private Duration window = Duration.ofMinutes(10);
+
+        // Rejections per half window the filter is sized for
+        private long expectedInsertions = 100_000;
+
+        // Chance that a token never rejected is mistaken for one
+        private double falsePositiveProbability = 1e-6;
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public long getExpectedInsertions() {
+            return expectedInsertions;
+        }
+
+        public void setExpectedInsertions(long expectedInsertions) {
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        public double getFalsePositiveProbability() {
+            return falsePositiveProbability;
+        }
+
+        public void setFalsePositiveProbability(double falsePositiveProbability) {
+            this.falsePositiveProbability = falsePositiveProbability;
+        }
+    }
+
+    // Client-side handling of GitHub's rate limits
+    public static class RateLimit {
+
+        // Calls for a token stop when this many remain in its quota, until the reset
+        private long reserve = 100;
+
+        public long getReserve() {
+            return reserve;
+        }
+
+        public void setReserve(long reserve) {
+            this.reserve = reserve;
+        }
+    }
+
+    // Circuit breaker around GitHub API calls
+    public static class CircuitBreaker {
+
+        // Consecutive failed or slow calls that open the circuit
+        private int failureThreshold = 5;
+
+        // Calls slower than this count as failures
+        private Duration slowCallThreshold = Duration.ofSeconds(2);
+
+        // How long the circuit stays open before a probe call is allowed
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getSlowCallThreshold() {
+            return slowCallThreshold;
+        }
+
+        public void setSlowCallThreshold(Duration slowCallThreshold) {
+            this.slowCallThreshold = slowCallThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.springsecurityoauth2rest.config;
+
+import com.example.springsecurityoauth2rest.service.PasswordHashingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * The application's {@link PasswordEncoder}: bcrypt, at a work factor calibrated on this
+ * machine unless {@code app.password-hashing.strength} fixes one. Stored hashes keep the
+ * factor they were made at; sign-in is through GitHub, so no password is ever checked here.
+ */
+@Configuration
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+public class PasswordHashingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingConfig.class);
+
+    private static final int CALIBRATION_RUNS = 3;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties) {
+        Integer strength = properties.getStrength();
+        if (strength == null) {
+            long started = System.nanoTime();
+            strength = PasswordHashingService.calibrateStrength(properties.getTargetLatency(),
+                    properties.getMinStrength(), properties.getMaxStrength(), PasswordHashingConfig::timeHash);
+            log.info("Calibrated bcrypt to strength {} for a target of {} ms per hash (took {} ms)", strength,
+                    properties.getTargetLatency().toMillis(), (System.nanoTime() - started) / 1_000_000);
+        }
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // Fastest of a few runs after a warm-up, so a GC pause or JIT compilation is not counted
+    private static long timeHash(int strength) {
+        String salt = BCrypt.gensalt(strength);
+        BCrypt.hashpw("calibration", salt);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_RUNS; i++) {
+            long started = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - started);
+        }
+        return fastest;
+    }
+}
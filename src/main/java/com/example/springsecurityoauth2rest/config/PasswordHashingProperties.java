@@ -0,0 +1,73 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.password-hashing")
+public class PasswordHashingProperties {
+
+    // At startup the bcrypt work factor is raised until one hash takes about this long
+    private Duration targetLatency = Duration.ofMillis(100);
+
+    // Bounds on the calibrated work factor (each step doubles the cost)
+    private int minStrength = 10;
+    private int maxStrength = 16;
+
+    // A fixed work factor instead of calibrating, e.g. so every instance uses the same one
+    private Integer strength;
+
+    // Hashes run on this many threads, off the request threads
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Hashes waiting for a thread; beyond this requests that need one are refused with 429
+    private int queueCapacity = Runtime.getRuntime().availableProcessors() * 4;
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(Duration targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public int getMinStrength() {
+        return minStrength;
+    }
+
+    public void setMinStrength(int minStrength) {
+        this.minStrength = minStrength;
+    }
+
+    public int getMaxStrength() {
+        return maxStrength;
+    }
+
+    public void setMaxStrength(int maxStrength) {
+        this.maxStrength = maxStrength;
+    }
+
+    public Integer getStrength() {
+        return strength;
+    }
+
+    public void setStrength(Integer strength) {
+        this.strength = strength;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.roles")
+public class RoleProperties {
+
+    // GitHub logins granted ROLE_ADMIN, matched case-insensitively
+    private List<String> adminUsers = new ArrayList<>();
+
+    // Also grant ROLE_ADMIN to enabled users rows with role ADMIN, limited to those the
+    // GitHub user sync created (local accounts are not GitHub identities)
+    private boolean useDatabase = false;
+
+    // How often the admin set is rebuilt from configuration and the database
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+    // Role -> GitHub memberships granting it, each "org" or "org/team-slug"
+    private Map<String, List<String>> membershipRoles = new LinkedHashMap<>();
+
+    // How long a user's memberships are trusted before GitHub is asked again
+    private Duration membershipTtl = Duration.ofMinutes(10);
+
+    private long membershipCacheSize = 10_000;
+
+    public List<String> getAdminUsers() {
+        return adminUsers;
+    }
+
+    public void setAdminUsers(List<String> adminUsers) {
+        this.adminUsers = adminUsers;
+    }
+
+    public boolean isUseDatabase() {
+        return useDatabase;
+    }
+
+    public void setUseDatabase(boolean useDatabase) {
+        this.useDatabase = useDatabase;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public Map<String, List<String>> getMembershipRoles() {
+        return membershipRoles;
+    }
+
+    public void setMembershipRoles(Map<String, List<String>> membershipRoles) {
+        this.membershipRoles = membershipRoles;
+    }
+
+    public Duration getMembershipTtl() {
+        return membershipTtl;
+    }
+
+    public void setMembershipTtl(Duration membershipTtl) {
+        this.membershipTtl = membershipTtl;
+    }
+
+    public long getMembershipCacheSize() {
+        return membershipCacheSize;
+    }
+
+    public void setMembershipCacheSize(long membershipCacheSize) {
+        this.membershipCacheSize = membershipCacheSize;
+    }
+}
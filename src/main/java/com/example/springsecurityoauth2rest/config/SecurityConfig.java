@@ -1,11 +1,20 @@
 package com.example.springsecurityoauth2rest.config;
 
+import com.example.springsecurityoauth2rest.github.GitHubUnavailableException;
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
+import com.example.springsecurityoauth2rest.security.GitHubIdentityResolver;
 import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.example.springsecurityoauth2rest.security.RoleResolver;
+import com.example.springsecurityoauth2rest.security.SessionTokenService;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -19,12 +28,19 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     @Bean
-    public GitHubTokenAuthenticationFilter gitHubTokenAuthenticationFilter() {
-        return new GitHubTokenAuthenticationFilter();
+    public GitHubTokenAuthenticationFilter gitHubTokenAuthenticationFilter(GitHubIdentityResolver identityResolver,
+                                                                           RoleResolver roleResolver,
+                                                                           GitHubUserSyncService userSyncService,
+                                                                           ActivePrincipalTracker activePrincipalTracker) {
+        return new GitHubTokenAuthenticationFilter(identityResolver, roleResolver, userSyncService,
+                activePrincipalTracker);
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           GitHubTokenAuthenticationFilter gitHubTokenAuthenticationFilter,
+                                           SessionTokenService sessionTokenService,
+                                           ActivePrincipalTracker activePrincipalTracker) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -39,14 +55,25 @@ public class SecurityConfig {
                 .requestMatchers("/api/users/**").hasRole("USER")
                 .requestMatchers("/auth/user").hasRole("USER")
                 
-                // Admin endpoints - require ROLE_ADMIN (configured GitHub usernames)
+                // Admin endpoints - require ROLE_ADMIN (app.roles.admin-users or ADMIN rows in users)
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 
                 // All other requests require authentication
                 .anyRequest().authenticated()
             )
             // Add custom GitHub token authentication filter
-            .addFilterBefore(gitHubTokenAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(gitHubTokenAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // Session JWTs minted by /api/auth/token are verified locally, without calling GitHub
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .bearerTokenResolver(sessionTokenResolver())
+                .authenticationEntryPoint(authenticationEntryPoint())
+                .jwt(jwt -> jwt
+                    .decoder(sessionTokenService.decoder())
+                    .jwtAuthenticationConverter(token -> {
+                        activePrincipalTracker.record(token.getSubject());
+                        return sessionTokenService.toAuthentication(token);
+                    })))
             
             // Disable form login and HTTP basic auth (pure API approach)
             .formLogin(form -> form.disable())
@@ -54,11 +81,7 @@ public class SecurityConfig {
             
             // Handle authentication exceptions for API responses
             .exceptionHandling(exceptions -> exceptions
-                .authenticationEntryPoint((request, response, authException) -> {
-                    response.setStatus(401);
-                    response.setContentType("application/json");
-                    response.getWriter().write("{\"error\":\"Unauthorized\",\"message\":\"Valid GitHub token required\"}");
-                })
+                .authenticationEntryPoint(authenticationEntryPoint())
                 .accessDeniedHandler((request, response, accessDeniedException) -> {
                     response.setStatus(403);
                     response.setContentType("application/json");
@@ -69,14 +92,43 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private AuthenticationEntryPoint authenticationEntryPoint() {
+        return (request, response, authException) -> {
+            Object unavailable = request.getAttribute(GitHubTokenAuthenticationFilter.UPSTREAM_UNAVAILABLE_ATTRIBUTE);
+            if (unavailable instanceof GitHubUnavailableException e) {
+                // The token may well be valid; tell the client to retry rather than re-authenticate
+                response.setStatus(503);
+                if (e.getRetryAfter() != null) {
+                    response.setHeader("Retry-After", String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+                }
+                response.setContentType("application/json");
+                response.getWriter().write("{\"error\":\"Service Unavailable\",\"message\":\"GitHub token validation is temporarily unavailable\"}");
+                return;
+            }
+            response.setStatus(401);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":\"Unauthorized\",\"message\":\"Valid GitHub token required\"}");
+        };
+    }
+
+    // Only JWT-shaped bearer tokens go to the resource server; GitHub tokens are left to the GitHub filter
+    private BearerTokenResolver sessionTokenResolver() {
+        DefaultBearerTokenResolver delegate = new DefaultBearerTokenResolver();
+        return request -> {
+            String token = delegate.resolve(request);
+            return token != null && SessionTokenService.isSessionToken(token) ? token : null;
+        };
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        // ETag is sent back as If-Match by PATCH /api/users/{id}
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
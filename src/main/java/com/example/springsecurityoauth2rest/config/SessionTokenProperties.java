@@ -0,0 +1,79 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.session-token")
+public class SessionTokenProperties {
+
+    // "iss" of minted tokens; tokens from any other issuer are refused
+    private String issuer = "spring-auth-github";
+
+    // Lifetime of a session token; also bounds how long a revocation must be remembered
+    private Duration ttl = Duration.ofMinutes(15);
+
+    // Base64 HMAC secrets of at least 32 bytes. The first signs, all verify. Required,
+    // unless secrets-file is set: every instance must sign with the same keys.
+    private List<String> secrets = new ArrayList<>();
+
+    // File of secrets in the same form, one per line, used instead of secrets and re-read
+    // when it changes, so keys can be rotated without a restart
+    private String secretsFile;
+
+    // How often the secrets file is checked for changes
+    private Duration reloadInterval = Duration.ofMinutes(1);
+
+    // How often revocations made by other instances are read from the database
+    private Duration revocationRefreshInterval = Duration.ofSeconds(5);
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public List<String> getSecrets() {
+        return secrets;
+    }
+
+    public void setSecrets(List<String> secrets) {
+        this.secrets = secrets;
+    }
+
+    public String getSecretsFile() {
+        return secretsFile;
+    }
+
+    public void setSecretsFile(String secretsFile) {
+        this.secretsFile = secretsFile;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public Duration getRevocationRefreshInterval() {
+        return revocationRefreshInterval;
+    }
+
+    public void setRevocationRefreshInterval(Duration revocationRefreshInterval) {
+        this.revocationRefreshInterval = revocationRefreshInterval;
+    }
+}
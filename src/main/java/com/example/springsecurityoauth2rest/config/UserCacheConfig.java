@@ -0,0 +1,73 @@
+package com.example.springsecurityoauth2rest.config;
+
+import com.example.springsecurityoauth2rest.entity.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level cache for {@link User}, in process: Caffeine behind the JCache
+ * API, with a cache manager created here rather than from a configuration file, so the
+ * regions are bounded and expire as {@code app.user-cache} says.
+ */
+@Configuration
+@EnableConfigurationProperties(UserCacheProperties.class)
+public class UserCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.user-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CacheManager userCacheManager(UserCacheProperties properties) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of its own, so its caches live and die with this application context
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("urn:user-cache:" + UUID.randomUUID()), provider.getDefaultClassLoader());
+        for (String region : List.of(User.CACHE_REGION, User.NATURAL_ID_CACHE_REGION)) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(properties.getMaximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(properties.getTtl().toNanos()));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer userCacheHibernateProperties(ObjectProvider<CacheManager> userCacheManager) {
+        return hibernateProperties -> {
+            CacheManager cacheManager = userCacheManager.getIfAvailable();
+            if (cacheManager == null) {
+                hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            // Hit and miss counts for /api/admin/stats/user-cache
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * Whether Hibernate was configured with the second-level cache, which is only turned on
+     * once the regions above exist.
+     */
+    public static boolean isEnabled(EntityManagerFactory entityManagerFactory) {
+        Object setting = entityManagerFactory.getProperties().get(AvailableSettings.USE_SECOND_LEVEL_CACHE);
+        return setting != null && Boolean.parseBoolean(setting.toString());
+    }
+}
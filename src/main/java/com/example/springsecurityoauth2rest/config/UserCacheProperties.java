@@ -0,0 +1,43 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.user-cache")
+public class UserCacheProperties {
+
+    // Cache User entities, and username to id lookups, in Hibernate's second-level cache
+    private boolean enabled = true;
+
+    // Entries per region (users, and usernames); the least valuable are evicted beyond it
+    private long maximumSize = 10_000;
+
+    // Entries expire this long after being written, bounding staleness from writes made
+    // outside Hibernate
+    private Duration ttl = Duration.ofMinutes(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+}
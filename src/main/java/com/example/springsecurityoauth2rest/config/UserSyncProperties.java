@@ -0,0 +1,64 @@
+package com.example.springsecurityoauth2rest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.user-sync")
+public class UserSyncProperties {
+
+    // Record GitHub logins that authenticate in the users table
+    private boolean enabled = true;
+
+    // How often queued sightings are written
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    // Sightings per JDBC batch; a queue this long is flushed without waiting for the timer
+    private int batchSize = 200;
+
+    // A login's last_seen_at is written at most this often
+    private Duration minInterval = Duration.ofMinutes(1);
+
+    // Sightings beyond this many queued logins are dropped rather than held in memory
+    private int maxPending = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getMinInterval() {
+        return minInterval;
+    }
+
+    public void setMinInterval(Duration minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.springsecurityoauth2rest.controller;
+
+import com.example.springsecurityoauth2rest.config.UserCacheConfig;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.github.GitHubApiClient;
+import com.example.springsecurityoauth2rest.monitoring.VirtualThreadPinningMonitor;
+import com.example.springsecurityoauth2rest.security.GitHubIdentityCache;
+import com.example.springsecurityoauth2rest.security.GitHubIdentityResolver;
+import com.example.springsecurityoauth2rest.security.RejectedTokenFilter;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
+import com.example.springsecurityoauth2rest.service.PasswordHashingService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats")
+public class AdminStatsController {
+
+    private final GitHubIdentityCache identityCache;
+    private final GitHubIdentityResolver identityResolver;
+    private final RejectedTokenFilter rejectedTokens;
+    private final GitHubApiClient gitHubApiClient;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final GitHubUserSyncService userSyncService;
+    private final SessionFactory sessionFactory;
+    private final boolean userCacheEnabled;
+    private final PasswordHashingService passwordHashingService;
+
+    public AdminStatsController(GitHubIdentityCache identityCache, GitHubIdentityResolver identityResolver,
+                                RejectedTokenFilter rejectedTokens, GitHubApiClient gitHubApiClient,
+                                VirtualThreadPinningMonitor pinningMonitor,
+                                GitHubUserSyncService userSyncService, EntityManagerFactory entityManagerFactory,
+                                PasswordHashingService passwordHashingService) {
+        this.identityCache = identityCache;
+        this.identityResolver = identityResolver;
+        this.rejectedTokens = rejectedTokens;
+        this.gitHubApiClient = gitHubApiClient;
+        this.pinningMonitor = pinningMonitor;
+        this.userSyncService = userSyncService;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.userCacheEnabled = UserCacheConfig.isEnabled(entityManagerFactory);
+        this.passwordHashingService = passwordHashingService;
+    }
+
+    @GetMapping("/identity-cache")
+    public ResponseEntity<Map<String, Object>> identityCacheStats() {
+        CacheStats stats = identityCache.stats();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", identityCache.size());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        if (identityCache.isShared()) {
+            response.put("sharedHits", identityCache.sharedHitCount());
+            response.put("sharedWritesSkipped", identityCache.sharedWritesSkippedCount());
+        }
+        response.put("coalescedValidations", identityResolver.coalescedValidations());
+        response.put("staleServed", identityResolver.staleServedCount());
+        response.put("revalidatedNotModified", identityResolver.notModifiedCount());
+        response.put("refreshesScheduled", identityResolver.refreshesScheduledCount());
+        response.put("refreshesDropped", identityResolver.refreshesDroppedCount());
+        response.put("refreshesFailed", identityResolver.refreshesFailedCount());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/rejected-tokens")
+    public ResponseEntity<Map<String, Object>> rejectedTokenStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("recentRejections", rejectedTokens.recentRejections());
+        response.put("shortCircuited", rejectedTokens.shortCircuitCount());
+        response.put("memoryBytes", rejectedTokens.memoryBytes());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/github")
+    public ResponseEntity<Map<String, Object>> gitHubClientStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("circuitState", gitHubApiClient.circuitState().name());
+        response.put("throttled", gitHubApiClient.throttledCount());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/user-sync")
+    public ResponseEntity<Map<String, Object>> userSyncStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pending", userSyncService.pendingCount());
+        response.put("written", userSyncService.writtenCount());
+        response.put("inserted", userSyncService.insertedCount());
+        response.put("dropped", userSyncService.droppedCount());
+        response.put("failedBatches", userSyncService.failedBatchCount());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/user-cache")
+    public ResponseEntity<Map<String, Object>> userCacheStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", userCacheEnabled);
+        if (userCacheEnabled) {
+            Statistics statistics = sessionFactory.getStatistics();
+            response.put("byId", regionStats(statistics.getDomainDataRegionStatistics(User.CACHE_REGION)));
+            response.put("byUsername", regionStats(statistics.getDomainDataRegionStatistics(User.NATURAL_ID_CACHE_REGION)));
+        }
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/password-hashing")
+    public ResponseEntity<Map<String, Object>> passwordHashingStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("threads", passwordHashingService.threadCount());
+        response.put("active", passwordHashingService.activeCount());
+        response.put("queued", passwordHashingService.queuedCount());
+        response.put("completed", passwordHashingService.completedCount());
+        response.put("rejected", passwordHashingService.rejectedCount());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/virtual-threads")
+    public ResponseEntity<Map<String, Object>> virtualThreadStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("monitoring", pinningMonitor.isEnabled());
+        response.put("pinned", pinningMonitor.pinnedCounts());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    private static Map<String, Object> regionStats(CacheRegionStatistics stats) {
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("region", stats.getRegionName());
+        region.put("size", stats.getElementCountInMemory());
+        region.put("hits", stats.getHitCount());
+        region.put("misses", stats.getMissCount());
+        region.put("puts", stats.getPutCount());
+        region.put("hitRate", lookups == 0 ? 1.0 : (double) stats.getHitCount() / lookups);
+        return region;
+    }
+}
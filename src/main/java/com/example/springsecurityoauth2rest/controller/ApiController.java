@@ -1,18 +1,28 @@
 package com.example.springsecurityoauth2rest.controller;
 
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
 import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class ApiController {
 
+    private final ActivePrincipalTracker activePrincipalTracker;
+
+    public ApiController(ActivePrincipalTracker activePrincipalTracker) {
+        this.activePrincipalTracker = activePrincipalTracker;
+    }
+
     @GetMapping("/public/health")
     public ResponseEntity<Map<String, String>> publicHealth() {
         Map<String, String> response = new HashMap<>();
@@ -79,12 +89,25 @@ public class ApiController {
     }
 
     @GetMapping("/admin/users")
-    public ResponseEntity<Map<String, Object>> getUsers() {
+    public ResponseEntity<Map<String, Object>> getUsers(@RequestParam(defaultValue = "50") int limit) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
+
+        // Users active in the last hour, busiest first
+        List<ActivePrincipalTracker.Activity> active =
+                activePrincipalTracker.activeWithin(ActivePrincipalTracker.WINDOWS.get(2));
+        Map<String, Object> activeCounts = new LinkedHashMap<>();
+        Map<String, Object> distinctCounts = new LinkedHashMap<>();
+        for (Duration window : ActivePrincipalTracker.WINDOWS) {
+            String key = window.toMinutes() + "m";
+            activeCounts.put(key, activePrincipalTracker.activeWithin(window).size());
+            distinctCounts.put(key, activePrincipalTracker.distinctUsers(window));
+        }
+
         Map<String, Object> response = new HashMap<>();
-        response.put("users", java.util.Arrays.asList("user1", "admin", "developer"));
-        response.put("total", 3);
+        response.put("users", active.subList(0, Math.min(Math.max(limit, 0), active.size())));
+        response.put("total", active.size());
+        response.put("active", activeCounts);
+        response.put("distinctApprox", distinctCounts);
         response.put("message", "Admin endpoint accessed successfully");
         response.put("accessedBy", authentication != null ? authentication.getName() : "unknown");
         response.put("adminAuthorities", authentication != null ? authentication.getAuthorities() : "none");
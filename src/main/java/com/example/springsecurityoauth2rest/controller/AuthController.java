@@ -1,12 +1,19 @@
 package com.example.springsecurityoauth2rest.controller;
 
 import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.example.springsecurityoauth2rest.security.SessionTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,6 +21,9 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
     @GetMapping("/user")
     public ResponseEntity<Map<String, Object>> getCurrentUser(Authentication authentication) {
         Map<String, Object> response = new HashMap<>();
@@ -54,4 +64,41 @@ public class AuthController {
         response.put("scopes_required", "No specific scopes required for basic authentication, but 'user:email' for email access");
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Exchanges the GitHub token this request was authenticated with for a short-lived
+     * session token. Later requests carrying the session token skip GitHub entirely.
+     */
+    @PostMapping("/token")
+    public ResponseEntity<Map<String, Object>> issueSessionToken(Authentication authentication) {
+        Map<String, Object> response = new HashMap<>();
+
+        // Only a GitHub-validated identity may mint; a session token cannot extend itself
+        if (authentication == null || authentication instanceof JwtAuthenticationToken
+                || !(authentication.getDetails() instanceof GitHubTokenAuthenticationFilter.GitHubUser githubUser)) {
+            response.put("error", "A GitHub token is required to obtain a session token");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        SessionTokenService.SessionToken token = sessionTokenService.mint(githubUser, authentication.getAuthorities());
+        response.put("access_token", token.value());
+        response.put("token_type", "Bearer");
+        response.put("expires_in", Duration.between(Instant.now(), token.expiresAt()).toSeconds());
+        response.put("expires_at", token.expiresAt().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/token/revoke")
+    public ResponseEntity<Map<String, Object>> revokeSessionToken(Authentication authentication) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!(authentication instanceof JwtAuthenticationToken jwtAuthentication)) {
+            response.put("error", "Only session tokens can be revoked here");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        sessionTokenService.revoke(jwtAuthentication.getToken().getId());
+        response.put("revoked", true);
+        return ResponseEntity.ok(response);
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.springsecurityoauth2rest.controller;
+
+import com.example.springsecurityoauth2rest.security.MembershipResolver;
+import com.example.springsecurityoauth2rest.security.RoleResolver;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/roles")
+public class RoleAdminController {
+
+    private final RoleResolver roleResolver;
+    private final MembershipResolver membershipResolver;
+
+    public RoleAdminController(RoleResolver roleResolver, MembershipResolver membershipResolver) {
+        this.roleResolver = roleResolver;
+        this.membershipResolver = membershipResolver;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> roles() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("admins", roleResolver.adminCount());
+        response.put("loadedAt", roleResolver.getLoadedAt().toString());
+        if (membershipResolver.isEnabled()) {
+            CacheStats stats = membershipResolver.stats();
+            response.put("membershipCacheSize", membershipResolver.size());
+            response.put("membershipHitRate", stats.hitRate());
+            response.put("membershipRoleSets", membershipResolver.internedCount());
+            response.put("membershipFailures", membershipResolver.failureCount());
+        }
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Applies role changes made in the users table without waiting for the next scheduled reload
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        roleResolver.reload();
+        return roles();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.springsecurityoauth2rest.controller;
+
+import com.example.springsecurityoauth2rest.security.SessionTokenService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/session-tokens")
+public class SessionTokenAdminController {
+
+    private final SessionTokenService sessionTokenService;
+
+    public SessionTokenAdminController(SessionTokenService sessionTokenService) {
+        this.sessionTokenService = sessionTokenService;
+    }
+
+    /**
+     * Key currently signing session tokens. Keys are rotated through configuration; this
+     * shows whether an instance has picked up the new one.
+     */
+    @GetMapping("/key")
+    public ResponseEntity<Map<String, Object>> activeKey() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("activeKeyId", sessionTokenService.activeKeyId());
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/revoke/{login}")
+    public ResponseEntity<Map<String, Object>> revokeAllFor(@PathVariable String login) {
+        sessionTokenService.revokeAllFor(login);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("login", login);
+        response.put("revoked", true);
+        response.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,9 +1,16 @@
 package com.example.springsecurityoauth2rest.controller;
 
+import com.example.springsecurityoauth2rest.dto.UserPage;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.dto.UserSummary;
 import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.service.DuplicateUserException;
+import com.example.springsecurityoauth2rest.service.PasswordHashingBusyException;
 import com.example.springsecurityoauth2rest.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,16 +30,28 @@ public class UserController {
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<Map<String, Object>> getAllUsers(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer size) {
+        Map<String, Object> response = new HashMap<>();
+        UserPage page;
+        try {
+            page = userService.listUsers(cursor, size);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("users", page.users());
+        response.put("size", page.users().size());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
     }
     
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
         Optional<User> user = userService.getUserById(id);
-        return user.map(ResponseEntity::ok)
+        return user.map(found -> withETag(ResponseEntity.ok(), found).body(found))
                   .orElse(ResponseEntity.notFound().build());
     }
     
@@ -41,17 +60,19 @@ public class UserController {
     public ResponseEntity<Map<String, Object>> createUser(@Valid @RequestBody User user) {
         Map<String, Object> response = new HashMap<>();
         
-        if (userService.existsByUsername(user.getUsername())) {
-            response.put("error", "Username is already taken!");
+        // No existence checks first: the unique constraints decide, in the same round trip
+        User createdUser;
+        try {
+            createdUser = userService.createUser(user);
+        } catch (DuplicateUserException e) {
+            response.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(response);
+        } catch (PasswordHashingBusyException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
         }
-        
-        if (userService.existsByEmail(user.getEmail())) {
-            response.put("error", "Email is already in use!");
-            return ResponseEntity.badRequest().body(response);
-        }
-        
-        User createdUser = userService.createUser(user);
         response.put("message", "User created successfully");
         response.put("user", createdUser);
         
@@ -81,19 +102,101 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Updates only the fields present in the body. The version being edited is taken from
+     * an If-Match header (the ETag of GET /api/users/{id}) or the body's {@code version};
+     * if the user has changed since, nothing is written and the client must reload.
+     */
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> patchUser(
+            @PathVariable Long id, @Valid @RequestBody UserPatch patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Map<String, Object> response = new HashMap<>();
+        Long expectedVersion;
+        try {
+            expectedVersion = ifMatch != null ? parseETag(ifMatch) : patch.version();
+        } catch (NumberFormatException e) {
+            response.put("error", "If-Match must be an ETag returned by this API");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (expectedVersion == null) {
+            response.put("error", "Send the version being edited as If-Match or version");
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body(response);
+        }
+
+        Optional<User> patched;
+        try {
+            patched = userService.patchUser(id, patch, expectedVersion);
+        } catch (OptimisticLockingFailureException e) {
+            response.put("error", "User was modified by someone else; reload it and try again");
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(response);
+        } catch (DuplicateUserException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (patched.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        response.put("message", "User updated successfully");
+        // Without the password hash, as in listings
+        response.put("user", UserSummary.of(patched.get()));
+        return withETag(ResponseEntity.ok(), patched.get()).body(response);
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, String>> deleteUser(@PathVariable Long id) {
         Map<String, String> response = new HashMap<>();
         
-        if (!userService.getUserById(id).isPresent()) {
+        // One DELETE; its row count says whether the user existed
+        if (userService.deleteUser(id) == 0) {
             response.put("error", "User not found");
             return ResponseEntity.notFound().build();
         }
         
-        userService.deleteUser(id);
         response.put("message", "User deleted successfully");
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Deletes the users with the given ids ({@code ?ids=1,2,3}) in one statement. Ids with
+     * no user are skipped; {@code deleted} counts the users actually removed.
+     */
+    @DeleteMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> deleteUsers(@RequestParam List<Long> ids) {
+        Map<String, Object> response = new HashMap<>();
+        int deleted;
+        try {
+            deleted = userService.deleteUsers(ids);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("message", "Users deleted successfully");
+        response.put("requested", ids.size());
+        response.put("deleted", deleted);
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, User user) {
+        return user.getVersion() != null ? builder.eTag("\"" + user.getVersion() + "\"") : builder;
+    }
+
+    // Accepts the strong or weak form of the ETags above
+    private static Long parseETag(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.parseLong(tag);
+    }
 }
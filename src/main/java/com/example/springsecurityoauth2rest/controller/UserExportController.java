@@ -0,0 +1,65 @@
+package com.example.springsecurityoauth2rest.controller;
+
+import com.example.springsecurityoauth2rest.service.UserExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/users/export")
+public class UserExportController {
+
+    private final UserExportService userExportService;
+
+    public UserExportController(UserExportService userExportService) {
+        this.userExportService = userExportService;
+    }
+
+    /**
+     * Streams every user as NDJSON (default) or CSV, optionally gzip-compressed. The body is
+     * written from a database cursor as rows arrive, so the export never sits in memory.
+     */
+    @GetMapping
+    public ResponseEntity<?> export(@RequestParam(defaultValue = "ndjson") String format,
+                                    @RequestParam(defaultValue = "false") boolean gzip) {
+        UserExportService.Format exportFormat;
+        try {
+            exportFormat = UserExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("error", "Unsupported format: " + format);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        String filename = "users." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> userExportService.export(exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/last")
+    public ResponseEntity<Map<String, Object>> lastExport() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        UserExportService.ExportResult last = userExportService.getLastExport();
+        if (last != null) {
+            response.put("format", last.format().name());
+            response.put("rows", last.rows());
+            response.put("elapsedMillis", last.elapsed().toMillis());
+            response.put("rowsPerSecond", last.rowsPerSecond());
+            response.put("finishedAt", last.finishedAt().toString());
+        }
+        response.put("timestamp", java.time.Instant.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.springsecurityoauth2rest.controller;
+
+import com.example.springsecurityoauth2rest.dto.UserImportRow;
+import com.example.springsecurityoauth2rest.service.UserImportService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/users/import")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+    private final ObjectReader rowReader;
+
+    public UserImportController(UserImportService userImportService, ObjectMapper objectMapper) {
+        this.userImportService = userImportService;
+        this.rowReader = objectMapper.readerFor(UserImportRow.class);
+    }
+
+    /**
+     * Creates the users in the body, given as NDJSON (one object per line) or a JSON array.
+     * The body is parsed as it is read, so imports of any size are not buffered. Responds
+     * with a count per outcome and the outcome of every row.
+     */
+    @PostMapping(consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Map<String, Object>> importUsers(InputStream body) throws IOException {
+        UserImportService.ImportReport report;
+        try (MappingIterator<UserImportRow> rows = rowReader.readValues(body)) {
+            report = userImportService.importUsers(rows);
+        }
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (UserImportService.Status status : UserImportService.Status.values()) {
+            counts.put(status.name(), report.count(status));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", report.rows().size());
+        response.put("counts", counts);
+        response.put("elapsedMillis", report.elapsed().toMillis());
+        response.put("rowsPerSecond", report.rowsPerSecond());
+        response.put("rows", report.rows());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.springsecurityoauth2rest.dto;
+
+/**
+ * One user in a bulk import. Either {@code password}, which is encoded on import, or
+ * {@code passwordHash}, an existing bcrypt hash stored as is, must be given.
+ */
+public record UserImportRow(String username,
+                            String email,
+                            String password,
+                            String passwordHash,
+                            String firstName,
+                            String lastName,
+                            String role) {
+}
@@ -0,0 +1,9 @@
+package com.example.springsecurityoauth2rest.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated user listing. {@code nextCursor} is null on the last page.
+ */
+public record UserPage(List<UserSummary> users, String nextCursor) {
+}
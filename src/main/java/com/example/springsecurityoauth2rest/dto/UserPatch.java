@@ -0,0 +1,15 @@
+package com.example.springsecurityoauth2rest.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Fields of a partial user update; null fields are left unchanged. {@code version} is the
+ * version the client edited, when it is not sent as an If-Match header.
+ */
+public record UserPatch(@Size(max = 50) String firstName,
+                        @Size(max = 50) String lastName,
+                        @Email @Size(min = 1, max = 50) String email,
+                        Boolean enabled,
+                        Long version) {
+}
@@ -0,0 +1,18 @@
+package com.example.springsecurityoauth2rest.dto;
+
+import com.example.springsecurityoauth2rest.entity.User;
+
+import java.time.Instant;
+
+/**
+ * Read-only view of a user for listings: every column except the password, selected
+ * directly by the query rather than read from a managed entity.
+ */
+public record UserSummary(Long id, String username, String email, String firstName, String lastName,
+                          String role, boolean enabled, Instant lastSeenAt) {
+
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getRole(), user.isEnabled(), user.getLastSeenAt());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.springsecurityoauth2rest.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A session token revoked before it expired: either one token, by {@code jti}, or every
+ * token issued to a login up to {@code revokedAt}. Kept in the database so every instance
+ * sees it and a restart does not forget it; useless, and deleted, once {@code expiresAt}
+ * has passed, since no token it covers can still be valid.
+ */
+@Entity
+@Table(name = "session_token_revocations",
+        indexes = @Index(name = "idx_session_token_revocations_expires_at", columnList = "expiresAt"))
+public class SessionTokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "session_token_revocations_seq")
+    @SequenceGenerator(name = "session_token_revocations_seq", sequenceName = "session_token_revocations_seq")
+    private Long id;
+
+    // Set when one token is revoked
+    @Column(length = 36)
+    private String tokenId;
+
+    // Set when every token of a login is revoked
+    @Column(length = 50)
+    private String login;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    protected SessionTokenRevocation() {
+    }
+
+    private SessionTokenRevocation(String tokenId, String login, Instant revokedAt, Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.login = login;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public static SessionTokenRevocation ofToken(String tokenId, Instant revokedAt, Instant expiresAt) {
+        return new SessionTokenRevocation(tokenId, null, revokedAt, expiresAt);
+    }
+
+    public static SessionTokenRevocation ofLogin(String login, Instant revokedAt, Instant expiresAt) {
+        return new SessionTokenRevocation(null, login, revokedAt, expiresAt);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
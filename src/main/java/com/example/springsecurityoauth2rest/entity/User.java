@@ -4,18 +4,45 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import java.time.Instant;
+
+// UPDATEs set only the columns that changed, so editing a name does not rewrite the password
 @Entity
-@Table(name = "users")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+})
 public class User {
+
+    public static final int ID_ALLOCATION_SIZE = 50;
+    // Named so a violation can be told apart without querying first
+    public static final String USERNAME_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    // Second-level cache regions: users by id, and ids by username
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-username";
     
+    // Pooled sequence: one round trip allocates 50 ids, so inserts can be JDBC-batched
+    // (an identity column forces a statement per row to read each key back)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = User.ID_ALLOCATION_SIZE)
     private Long id;
     
+    // Never changes once created, so the username to id mapping can be cached
+    @NaturalId
     @NotBlank
     @Size(min = 3, max = 50)
-    @Column(unique = true)
     private String username;
     
     @NotBlank
@@ -37,6 +64,14 @@ public class User {
     
     private boolean enabled = true;
 
+    // Last authenticated request seen from this GitHub login; null for accounts never used through GitHub
+    private Instant lastSeenAt;
+
+    // Optimistic lock: an update made from a stale copy fails instead of overwriting a newer one.
+    // Bumped by edits through JPA, not by the GitHub user sync touching lastSeenAt.
+    @Version
+    private Long version;
+
     // Default constructor
     public User() {}
 
@@ -113,4 +148,20 @@ public class User {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
+
+    public Instant getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(Instant lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,87 @@
+package com.example.springsecurityoauth2rest.github;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal lock-free circuit breaker for upstream calls.
+ *
+ * Opens after a run of consecutive failures, where a call slower than the slow-call
+ * threshold counts as a failure. After the open duration a single probe call is let
+ * through; its outcome closes the circuit or opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, Duration slowCallThreshold, Duration openDuration) {
+        this(failureThreshold, slowCallThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration slowCallThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns whether a call may proceed. In the half-open state only the caller that
+     * wins the transition gets to probe.
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && nanoClock.getAsLong() - openedAt.get() >= openNanos) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    public void onSuccess(long elapsedNanos) {
+        if (elapsedNanos > slowCallNanos) {
+            onFailure();
+            return;
+        }
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    public void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt.set(nanoClock.getAsLong());
+            state.set(State.OPEN);
+        }
+    }
+
+    /**
+     * Time until a probe will be allowed, or zero when the circuit is not open.
+     */
+    public Duration remainingOpen() {
+        if (state.get() != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = openNanos - (nanoClock.getAsLong() - openedAt.get());
+        return Duration.ofNanos(Math.max(0, remaining));
+    }
+
+    public State getState() {
+        return state.get();
+    }
+}
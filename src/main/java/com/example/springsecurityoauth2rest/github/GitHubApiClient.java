@@ -0,0 +1,400 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.example.springsecurityoauth2rest.security.TokenDigest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Client for the GitHub API endpoints used to authenticate tokens and resolve roles.
+ *
+ * Every call passes through the rate limiter and the circuit breaker. Anything that
+ * prevents GitHub from giving a verdict on the token surfaces as
+ * {@link GitHubUnavailableException}, never as a rejected token.
+ */
+@Component
+public class GitHubApiClient {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubApiClient.class);
+
+    // Only a 200 body is worth keeping; error bodies are discarded as they arrive
+    private static final HttpResponse.BodyHandler<byte[]> OK_BODY_HANDLER = responseInfo ->
+            responseInfo.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.ofByteArray()
+                    : HttpResponse.BodySubscribers.replacing(null);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    // The client's callback executor when it is a bounded pool, so a full queue can be refused
+    private final ThreadPoolExecutor callbackExecutor;
+    private final GitHubRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final URI userUri;
+    private final URI emailsUri;
+    private final URI graphqlUri;
+    private final Duration readTimeout;
+    private final boolean warmUp;
+    private final boolean fetchPrimaryEmail;
+
+    public GitHubApiClient(HttpClient gitHubHttpClient, GitHubProperties properties) {
+        GitHubProperties.Api api = properties.getApi();
+        this.httpClient = gitHubHttpClient;
+        this.callbackExecutor = gitHubHttpClient.executor()
+                .filter(ThreadPoolExecutor.class::isInstance)
+                .map(ThreadPoolExecutor.class::cast)
+                .orElse(null);
+        this.userUri = URI.create(stripTrailingSlash(api.getBaseUrl()) + "/user");
+        this.emailsUri = URI.create(stripTrailingSlash(api.getBaseUrl()) + "/user/emails");
+        this.graphqlUri = URI.create(stripTrailingSlash(api.getBaseUrl()) + "/graphql");
+        this.readTimeout = api.getReadTimeout();
+        this.warmUp = api.isWarmUp();
+        this.fetchPrimaryEmail = api.isFetchPrimaryEmail();
+        GitHubProperties.RateLimit rateLimit = properties.getRateLimit();
+        GitHubProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+        this.rateLimiter = new GitHubRateLimiter(rateLimit.getReserve(), properties.getCache().getMaximumSize());
+        this.circuitBreaker = new CircuitBreaker(breaker.getFailureThreshold(),
+                breaker.getSlowCallThreshold(), breaker.getOpenDuration());
+    }
+
+    /**
+     * Fetches the token's user. With an {@code etag} from an earlier response the request
+     * is conditional, and GitHub answers 304 without a body or a charge to the primary
+     * rate limit if the profile is unchanged.
+     *
+     * With {@code github.api.fetch-primary-email}, a user whose profile hides their email
+     * gets their primary verified address from {@code /user/emails}. On a first fetch that
+     * call runs alongside {@code /user}, so the pair takes as long as the slower of the two;
+     * it is cancelled as soon as {@code /user} fails or turns out not to need it. A
+     * conditional fetch only asks for emails if the profile changed, as a 304 keeps the
+     * address already cached. Failing to get the email never fails the fetch.
+     */
+    public GitHubUserResponse fetchUser(String token, TokenDigest digest, String etag)
+            throws IOException, InterruptedException {
+        rateLimiter.checkPermit(digest);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(userUri)
+                .timeout(readTimeout)
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/vnd.github.v3+json")
+                .header("User-Agent", "Spring-Boot-App")
+                .GET();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> primaryEmail = fetchPrimaryEmail && etag == null
+                ? fetchPrimaryEmailAsync(token, digest) : null;
+        HttpResponse<byte[]> response;
+        try {
+            response = send(builder.build(), digest);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            cancel(primaryEmail);
+            throw e;
+        }
+        int status = response.statusCode();
+
+        if (status == 200) {
+            GitHubTokenAuthenticationFilter.GitHubUser user = GitHubUserDecoder.decode(response.body());
+            if (user.getEmail() == null && fetchPrimaryEmail) {
+                if (primaryEmail == null) {
+                    primaryEmail = fetchPrimaryEmailAsync(token, digest);
+                }
+                user = new GitHubTokenAuthenticationFilter.GitHubUser(user.getLogin(), user.getName(),
+                        await(primaryEmail), user.getAvatarUrl());
+            } else {
+                cancel(primaryEmail);
+            }
+            return GitHubUserResponse.ok(user, response.headers().firstValue("ETag").orElse(null));
+        }
+        cancel(primaryEmail);
+        if (status == 304) {
+            return GitHubUserResponse.notModified(response.headers().firstValue("ETag").orElse(etag));
+        }
+        if (status == 401) {
+            return GitHubUserResponse.unauthorized();
+        }
+        return GitHubUserResponse.rejected();
+    }
+
+    /**
+     * Fetches the organizations and teams the token's user belongs to, in one GraphQL
+     * query: the user's organizations, plus the teams within each of {@code teamOrgs}
+     * that include {@code login}. Memberships are returned lower-cased as {@code org} and
+     * {@code org/team-slug}. Memberships the token cannot see (without the
+     * {@code read:org} scope, only public ones) are simply absent, and the result is then
+     * marked incomplete.
+     */
+    public GitHubMemberships fetchMemberships(String token, String login, List<String> teamOrgs)
+            throws IOException, InterruptedException {
+        // Values travel as variables, never spliced into the query text
+        List<String> declarations = new ArrayList<>();
+        Map<String, Object> variables = new LinkedHashMap<>();
+        StringBuilder selections = new StringBuilder("viewer { organizations(first: 100) { nodes { login } } }");
+        if (!teamOrgs.isEmpty()) {
+            declarations.add("$login: String!");
+            variables.put("login", login);
+        }
+        for (int i = 0; i < teamOrgs.size(); i++) {
+            declarations.add("$o" + i + ": String!");
+            variables.put("o" + i, teamOrgs.get(i));
+            selections.append(" o").append(i).append(": organization(login: $o").append(i)
+                    .append(") { teams(first: 100, userLogins: [$login]) { nodes { slug } } }");
+        }
+        String graphql = (declarations.isEmpty() ? "query" : "query(" + String.join(", ", declarations) + ")")
+                + " { " + selections + " }";
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(graphqlUri)
+                .timeout(readTimeout)
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "Spring-Boot-App")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        objectMapper.writeValueAsBytes(Map.of("query", graphql, "variables", variables))))
+                .build();
+
+        HttpResponse<byte[]> response = send(request, null);
+        if (response.statusCode() != 200) {
+            return GitHubMemberships.incomplete();
+        }
+
+        // A field the token may not read comes back null alongside an "errors" entry
+        JsonNode data = objectMapper.readTree(response.body()).path("data");
+        Set<String> memberships = new HashSet<>();
+        for (JsonNode organization : data.path("viewer").path("organizations").path("nodes")) {
+            if (organization.hasNonNull("login")) {
+                memberships.add(organization.get("login").asText().toLowerCase(Locale.ROOT));
+            }
+        }
+        for (int i = 0; i < teamOrgs.size(); i++) {
+            String org = teamOrgs.get(i).toLowerCase(Locale.ROOT);
+            for (JsonNode team : data.path("o" + i).path("teams").path("nodes")) {
+                if (team.hasNonNull("slug")) {
+                    memberships.add(org + "/" + team.get("slug").asText().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return new GitHubMemberships(memberships, canReadOrgs(response));
+    }
+
+    // Only classic tokens report X-OAuth-Scopes; fine-grained and app tokens are taken at their word
+    private static boolean canReadOrgs(HttpResponse<?> response) {
+        Optional<String> scopes = response.headers().firstValue("X-OAuth-Scopes");
+        if (scopes.isEmpty()) {
+            return true;
+        }
+        for (String scope : scopes.get().split(",")) {
+            String trimmed = scope.trim();
+            if (trimmed.equals("read:org") || trimmed.equals("write:org") || trimmed.equals("admin:org")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Establishes the connection to GitHub ahead of the first validation. Failures are
+     * harmless: the first real call simply connects itself.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpConnection() {
+        if (!warmUp) {
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(userUri.resolve("/"))
+                .timeout(readTimeout)
+                .header("User-Agent", "Spring-Boot-App")
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.debug("GitHub connection warm-up failed: {}", error.getMessage());
+                    } else {
+                        log.debug("GitHub connection warmed up over {}", response.version());
+                    }
+                });
+    }
+
+    /**
+     * Starts fetching the primary verified email, through the same rate limiter and circuit
+     * breaker as every other call. Returns the exchange itself, so cancelling it aborts the
+     * request, or {@code null} when the lookup is skipped.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> fetchPrimaryEmailAsync(String token, TokenDigest digest) {
+        // Optional, so it never takes a half-open probe away from /user
+        if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return null;
+        }
+        try {
+            checkCapacity();
+            rateLimiter.checkPermit(digest);
+        } catch (GitHubUnavailableException e) {
+            return null;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            return null;
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(emailsUri)
+                .timeout(readTimeout)
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/vnd.github.v3+json")
+                .header("User-Agent", "Spring-Boot-App")
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request, OK_BODY_HANDLER);
+        exchange.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                // Abandoned by us, which says nothing about GitHub
+                return;
+            }
+            if (error != null) {
+                circuitBreaker.onFailure();
+                return;
+            }
+            rateLimiter.record(digest, response.statusCode(), response.headers());
+            if (response.statusCode() >= 500 || GitHubRateLimiter.isRateLimited(response.statusCode(), response.headers())) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+            }
+        });
+        return exchange;
+    }
+
+    private static String primaryEmail(byte[] body) {
+        try {
+            for (JsonNode email : objectMapper.readTree(body)) {
+                if (email.path("primary").asBoolean() && email.path("verified").asBoolean()
+                        && email.hasNonNull("email")) {
+                    return email.get("email").asText();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Unreadable /user/emails response: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * The primary verified email once the lookup completes, or {@code null} when it was
+     * skipped, there is none or it cannot be read; GitHub answers 404 to tokens without
+     * the user:email scope.
+     */
+    private static String await(CompletableFuture<HttpResponse<byte[]>> exchange) throws InterruptedException {
+        if (exchange == null) {
+            return null;
+        }
+        try {
+            // Bounded by the request timeout
+            HttpResponse<byte[]> response = exchange.get();
+            return response.statusCode() == 200 ? primaryEmail(response.body()) : null;
+        } catch (ExecutionException e) {
+            log.debug("Could not fetch primary email: {}", e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            throw e;
+        }
+    }
+
+    // Cancelling the future sendAsync returned aborts the exchange if it is still running
+    private static void cancel(CompletableFuture<?> future) {
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long throttledCount() {
+        return rateLimiter.throttledCount();
+    }
+
+    /**
+     * Sends through the circuit breaker. Primary rate-limit headers are recorded against
+     * {@code quotaDigest} when given; GraphQL has a separate budget and passes none.
+     */
+    private HttpResponse<byte[]> send(HttpRequest request, TokenDigest quotaDigest)
+            throws IOException, InterruptedException {
+        checkCapacity();
+        if (!circuitBreaker.tryAcquire()) {
+            throw new GitHubUnavailableException("GitHub circuit is open", circuitBreaker.remainingOpen());
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, OK_BODY_HANDLER);
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            throw new GitHubUnavailableException("GitHub request failed: " + e.getMessage(), null, e);
+        } catch (InterruptedException e) {
+            // No verdict either way; count it so a half-open probe cannot get stuck
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int status = response.statusCode();
+        if (quotaDigest != null) {
+            rateLimiter.record(quotaDigest, status, response.headers());
+        }
+
+        if (status >= 500 || GitHubRateLimiter.isRateLimited(status, response.headers())) {
+            circuitBreaker.onFailure();
+            throw new GitHubUnavailableException("GitHub responded with " + status, retryAfter(response));
+        }
+        circuitBreaker.onSuccess(elapsed);
+        return response;
+    }
+
+    // Local overload, not GitHub's fault, so it is checked before the circuit breaker and not counted by it
+    private void checkCapacity() throws GitHubUnavailableException {
+        if (callbackExecutor != null && callbackExecutor.getQueue().remainingCapacity() == 0) {
+            throw new GitHubUnavailableException("GitHub client is saturated", null);
+        }
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        OptionalLong seconds = response.headers().firstValueAsLong("Retry-After");
+        return seconds.isPresent() ? Duration.ofSeconds(seconds.getAsLong()) : null;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springsecurityoauth2rest.github;
+
+import java.util.Set;
+
+/**
+ * The organizations and teams a token's user belongs to, as {@code org} and
+ * {@code org/team-slug}. {@code complete} is false when GitHub may have left some out:
+ * a refused query, or a classic token without an org scope, which only sees public
+ * memberships.
+ */
+public record GitHubMemberships(Set<String> memberships, boolean complete) {
+
+    public static GitHubMemberships incomplete() {
+        return new GitHubMemberships(Set.of(), false);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.security.TokenDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.net.http.HttpHeaders;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks GitHub's rate-limit headers and refuses calls that would run into the limit.
+ *
+ * The primary limit ({@code X-RateLimit-Remaining} / {@code X-RateLimit-Reset}) belongs
+ * to the token's owner, so it is tracked per token digest; once a token is within the
+ * reserve, further calls for it wait for the reset. {@code Retry-After} and secondary
+ * limits apply to this client as a whole and pause every call.
+ */
+public class GitHubRateLimiter {
+
+    private record Quota(long remaining, long resetEpochSecond) {
+    }
+
+    private final long reserve;
+    private final Clock clock;
+    private final Cache<TokenDigest, Quota> quotas;
+    private final AtomicLong pausedUntilMillis = new AtomicLong();
+    private final LongAdder throttled = new LongAdder();
+
+    public GitHubRateLimiter(long reserve, long maximumTrackedTokens) {
+        this(reserve, maximumTrackedTokens, Clock.systemUTC());
+    }
+
+    GitHubRateLimiter(long reserve, long maximumTrackedTokens, Clock clock) {
+        this.reserve = reserve;
+        this.clock = clock;
+        // Primary limits reset at least hourly, so older observations are worthless
+        this.quotas = Caffeine.newBuilder()
+                .maximumSize(maximumTrackedTokens)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+    }
+
+    /**
+     * Throws if a call for this token should not be made right now.
+     */
+    public void checkPermit(TokenDigest digest) throws GitHubUnavailableException {
+        long now = clock.millis();
+        long pausedUntil = pausedUntilMillis.get();
+        if (now < pausedUntil) {
+            throttled.increment();
+            throw new GitHubUnavailableException("GitHub asked us to back off",
+                    Duration.ofMillis(pausedUntil - now));
+        }
+
+        Quota quota = quotas.getIfPresent(digest);
+        if (quota != null && quota.remaining() <= reserve) {
+            long resetMillis = quota.resetEpochSecond() * 1000;
+            if (now < resetMillis) {
+                throttled.increment();
+                throw new GitHubUnavailableException("GitHub rate limit nearly exhausted for token",
+                        Duration.ofMillis(resetMillis - now));
+            }
+            quotas.invalidate(digest);
+        }
+    }
+
+    /**
+     * Records the rate-limit state reported with a response.
+     */
+    public void record(TokenDigest digest, int statusCode, HttpHeaders headers) {
+        OptionalLong remaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+        OptionalLong reset = headers.firstValueAsLong("X-RateLimit-Reset");
+        if (remaining.isPresent() && reset.isPresent()) {
+            quotas.put(digest, new Quota(remaining.getAsLong(), reset.getAsLong()));
+        }
+
+        OptionalLong retryAfterSeconds = headers.firstValueAsLong("Retry-After");
+        if (retryAfterSeconds.isPresent()) {
+            pauseUntil(clock.millis() + retryAfterSeconds.getAsLong() * 1000);
+        } else if (isRateLimited(statusCode, headers) && reset.isPresent()) {
+            // Exhausted with no Retry-After: GitHub documents waiting for the reset
+            quotas.put(digest, new Quota(0, reset.getAsLong()));
+        }
+    }
+
+    /**
+     * Whether the response is GitHub refusing the call for rate-limit reasons rather
+     * than because of the token.
+     */
+    public static boolean isRateLimited(int statusCode, HttpHeaders headers) {
+        if (statusCode == 429) {
+            return true;
+        }
+        return statusCode == 403
+                && (headers.firstValue("Retry-After").isPresent()
+                    || headers.firstValueAsLong("X-RateLimit-Remaining").orElse(1) == 0);
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    public Instant pausedUntil() {
+        return Instant.ofEpochMilli(pausedUntilMillis.get());
+    }
+
+    private void pauseUntil(long untilMillis) {
+        pausedUntilMillis.accumulateAndGet(untilMillis, Math::max);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.springsecurityoauth2rest.github;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * GitHub could not give a verdict on a token: the call failed, timed out, was
+ * throttled, or was not attempted because the circuit is open. Distinct from a
+ * rejected token, which GitHub answers definitively.
+ */
+public class GitHubUnavailableException extends IOException {
+
+    private final Duration retryAfter;
+
+    public GitHubUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public GitHubUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
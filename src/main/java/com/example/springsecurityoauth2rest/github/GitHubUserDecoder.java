@@ -0,0 +1,67 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming decoder for the GitHub {@code /user} payload.
+ *
+ * Reads the response bytes token by token and keeps only {@code login}, {@code name},
+ * {@code email} and {@code avatar_url}; every other value, including nested objects
+ * such as {@code plan}, is skipped without being materialised. Unlike
+ * {@code ObjectMapper.readTree} this builds no intermediate String or node tree.
+ */
+public final class GitHubUserDecoder {
+
+    // Thread-safe and reusable; holds the shared symbol table for field names
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private GitHubUserDecoder() {
+    }
+
+    public static GitHubTokenAuthenticationFilter.GitHubUser decode(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object for GitHub user");
+            }
+
+            String login = null;
+            String name = null;
+            String email = null;
+            String avatarUrl = null;
+
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "login" -> login = textOrNull(parser, value);
+                    case "name" -> name = textOrNull(parser, value);
+                    case "email" -> email = textOrNull(parser, value);
+                    case "avatar_url" -> avatarUrl = textOrNull(parser, value);
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (login == null) {
+                throw new JsonParseException(parser, "GitHub user payload has no login");
+            }
+            return new GitHubTokenAuthenticationFilter.GitHubUser(login, name, email, avatarUrl);
+        }
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+
+/**
+ * GitHub's verdict on a token from the {@code /user} endpoint.
+ */
+public final class GitHubUserResponse {
+
+    public enum Status {
+        // 200 with the user's profile
+        OK,
+        // 304 to a conditional request: the profile we hold is still current
+        NOT_MODIFIED,
+        // 401: the token is invalid, expired or revoked
+        UNAUTHORIZED,
+        // Any other definitive refusal, e.g. 403 for a token lacking access
+        REJECTED
+    }
+
+    private final Status status;
+    private final GitHubTokenAuthenticationFilter.GitHubUser user;
+    private final String etag;
+
+    private GitHubUserResponse(Status status, GitHubTokenAuthenticationFilter.GitHubUser user, String etag) {
+        this.status = status;
+        this.user = user;
+        this.etag = etag;
+    }
+
+    public static GitHubUserResponse ok(GitHubTokenAuthenticationFilter.GitHubUser user, String etag) {
+        return new GitHubUserResponse(Status.OK, user, etag);
+    }
+
+    public static GitHubUserResponse notModified(String etag) {
+        return new GitHubUserResponse(Status.NOT_MODIFIED, null, etag);
+    }
+
+    public static GitHubUserResponse unauthorized() {
+        return new GitHubUserResponse(Status.UNAUTHORIZED, null, null);
+    }
+
+    public static GitHubUserResponse rejected() {
+        return new GitHubUserResponse(Status.REJECTED, null, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public GitHubTokenAuthenticationFilter.GitHubUser getUser() {
+        return user;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
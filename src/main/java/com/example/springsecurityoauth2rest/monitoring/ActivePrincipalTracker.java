@@ -0,0 +1,165 @@
+package com.example.springsecurityoauth2rest.monitoring;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live view of who is using the API, fed by authentication on every request.
+ *
+ * Two structures, both of fixed size however many users there are:
+ * <ul>
+ *   <li>per-login activity (request count, first and last seen) for at most
+ *       {@code app.active-principals.max-tracked} logins; logins idle for an hour are
+ *       pruned every minute, and while the map is full new logins are only counted
+ *       by the sketches</li>
+ *   <li>a HyperLogLog sketch per minute for the last hour, merged on demand into
+ *       approximate distinct-user counts that stay right when there are more users than
+ *       can be tracked individually</li>
+ * </ul>
+ * A window ends now rather than at the last minute boundary: it takes the whole minutes
+ * it covers, plus the share of the oldest minute that is still inside it, so counts
+ * shrink smoothly instead of dropping as each minute starts.
+ * Recording is a map lookup, a {@link LongAdder} increment, a volatile write and,
+ * usually, one read of a sketch register; nothing is locked. A sketch is cleared by the
+ * first request of its minute, so a request racing with that may go uncounted.
+ */
+@Component
+public class ActivePrincipalTracker {
+
+    public static final List<Duration> WINDOWS = List.of(
+            Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(60));
+
+    private static final long MINUTE_MILLIS = 60_000;
+    // The last hour plus the minute in progress
+    private static final int BUCKETS = 61;
+
+    public record Activity(String login, long requests, Instant firstSeen, Instant lastSeen) {
+    }
+
+    private static final class Counter {
+        private final LongAdder requests = new LongAdder();
+        private final long firstSeenMillis;
+        private volatile long lastSeenMillis;
+
+        private Counter(long now) {
+            this.firstSeenMillis = now;
+        }
+    }
+
+    private final Clock clock;
+    private final long maxTracked;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final HyperLogLog[] sketches = new HyperLogLog[BUCKETS];
+    private final AtomicLongArray sketchMinutes = new AtomicLongArray(BUCKETS);
+
+    @Autowired
+    public ActivePrincipalTracker(@Value("${app.active-principals.max-tracked:10000}") long maxTracked) {
+        this(maxTracked, Clock.systemUTC());
+    }
+
+    ActivePrincipalTracker(long maxTracked, Clock clock) {
+        this.clock = clock;
+        this.maxTracked = maxTracked;
+        for (int i = 0; i < BUCKETS; i++) {
+            sketches[i] = new HyperLogLog();
+            sketchMinutes.set(i, -1);
+        }
+    }
+
+    public void record(String login) {
+        long now = clock.millis();
+        long minute = now / MINUTE_MILLIS;
+        int slot = (int) (minute % BUCKETS);
+        long sketchMinute = sketchMinutes.get(slot);
+        if (sketchMinute < minute && sketchMinutes.compareAndSet(slot, sketchMinute, minute)) {
+            // The slot still holds a minute from over an hour ago
+            sketches[slot].clear();
+        }
+        sketches[slot].add(HyperLogLog.hash(login));
+
+        Counter counter = counters.get(login);
+        if (counter == null) {
+            if (counters.size() >= maxTracked) {
+                return;
+            }
+            counter = counters.computeIfAbsent(login, key -> new Counter(now));
+        }
+        counter.requests.increment();
+        counter.lastSeenMillis = now;
+    }
+
+    /**
+     * Approximate number of distinct logins seen within the window. The oldest minute is
+     * only partly inside it, so the users first seen there are counted by that share.
+     */
+    public long distinctUsers(Duration window) {
+        long now = clock.millis();
+        long currentMinute = now / MINUTE_MILLIS;
+        // The slot after the current one still holds the minute an hour and one minute ago
+        long minutes = Math.min(BUCKETS - 1, Math.max(1, window.toMinutes()));
+        List<HyperLogLog> inWindow = new ArrayList<>();
+        for (long minute = currentMinute - minutes + 1; minute <= currentMinute; minute++) {
+            addSketch(inWindow, minute);
+        }
+        long whole = inWindow.isEmpty() ? 0 : HyperLogLog.estimate(inWindow);
+        if (!addSketch(inWindow, currentMinute - minutes)) {
+            return whole;
+        }
+        double share = 1 - (double) (now % MINUTE_MILLIS) / MINUTE_MILLIS;
+        long onlyInOldest = Math.max(0, HyperLogLog.estimate(inWindow) - whole);
+        return whole + Math.round(onlyInOldest * share);
+    }
+
+    private boolean addSketch(List<HyperLogLog> sketchList, long minute) {
+        int slot = (int) (minute % BUCKETS);
+        if (sketchMinutes.get(slot) != minute) {
+            return false;
+        }
+        sketchList.add(sketches[slot]);
+        return true;
+    }
+
+    /**
+     * Tracked logins seen within the window, most requests first.
+     */
+    public List<Activity> activeWithin(Duration window) {
+        long since = clock.millis() - window.toMillis();
+        List<Activity> active = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long lastSeen = counter.lastSeenMillis;
+            if (lastSeen >= since) {
+                active.add(new Activity(entry.getKey(), counter.requests.sum(),
+                        Instant.ofEpochMilli(counter.firstSeenMillis), Instant.ofEpochMilli(lastSeen)));
+            }
+        }
+        active.sort(Comparator.comparingLong(Activity::requests).reversed().thenComparing(Activity::login));
+        return active;
+    }
+
+    /**
+     * Forgets logins with no request in the longest window.
+     */
+    @Scheduled(fixedDelayString = "${app.active-principals.prune-interval:60s}")
+    public void prune() {
+        long idleSince = clock.millis() - WINDOWS.get(WINDOWS.size() - 1).toMillis();
+        counters.values().removeIf(counter -> counter.lastSeenMillis < idleSince);
+    }
+
+    public long trackedCount() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.springsecurityoauth2rest.monitoring;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size HyperLogLog sketch: 1024 registers packed eight to a long, about 1 KB,
+ * with a standard error of roughly 3%. Adding is lock-free, and once the sketch has
+ * warmed up almost every add is a single read that changes nothing.
+ */
+final class HyperLogLog {
+
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final AtomicLongArray words = new AtomicLongArray(REGISTERS / 8);
+
+    void add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        // The guard bit caps the rank, so it always fits in a byte
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        int word = index >>> 3;
+        int shift = (index & 7) * 8;
+        while (true) {
+            long current = words.get(word);
+            if (((current >>> shift) & 0xFF) >= rank) {
+                return;
+            }
+            long updated = (current & ~(0xFFL << shift)) | ((long) rank << shift);
+            if (words.compareAndSet(word, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+
+    /**
+     * Estimated number of distinct values added to any of the sketches.
+     */
+    static long estimate(List<HyperLogLog> sketches) {
+        double sum = 0;
+        int zeros = 0;
+        for (int word = 0; word < REGISTERS / 8; word++) {
+            long merged = 0;
+            for (HyperLogLog sketch : sketches) {
+                merged = maxBytes(merged, sketch.words.get(word));
+            }
+            for (int shift = 0; shift < Long.SIZE; shift += 8) {
+                int register = (int) ((merged >>> shift) & 0xFF);
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Linear counting is far more accurate while most registers are still empty
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 64-bit hash of a login: FNV-1a over every character, then the murmur3 fmix64
+     * finalizer. {@code String.hashCode()} would leave only 32 bits to spread, and
+     * logins that collide there would always count as one.
+     */
+    static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return fmix64(h);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long maxBytes(long a, long b) {
+        long max = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            max |= Math.max((a >>> shift) & 0xFF, (b >>> shift) & 0xFF) << shift;
+        }
+        return max;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.springsecurityoauth2rest.monitoring;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads pinned to their carrier thread while running with
+ * {@code spring.threads.virtual.enabled=true}.
+ *
+ * Listens to the JDK Flight Recorder {@code jdk.VirtualThreadPinned} event in-process
+ * and attributes each pinning to the code path it happened on, by looking at the
+ * frames of the pinned stack. Pinning blocks a carrier for its whole duration, so with
+ * a handful of carriers a few pinned requests are enough to stall the server.
+ */
+@Component
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    public enum PinningSource { AUTHENTICATION_FILTER, JPA, SECURITY_CONTEXT, OTHER }
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Map<PinningSource, LongAdder> counts = new EnumMap<>(PinningSource.class);
+    private volatile RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                       @Value("${app.virtual-threads.pinning-monitor.enabled:true}") boolean monitor,
+                                       @Value("${app.virtual-threads.pinning-monitor.threshold:20ms}") Duration threshold) {
+        this.enabled = virtualThreads && monitor;
+        this.threshold = threshold;
+        for (PinningSource source : PinningSource.values()) {
+            counts.put(source, new LongAdder());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+        recordingStream = stream;
+        log.info("Watching for virtual threads pinned longer than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream stream = recordingStream;
+        if (stream != null) {
+            stream.close();
+            recordingStream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recordingStream != null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<PinningSource, Long> pinnedCounts() {
+        Map<PinningSource, Long> snapshot = new EnumMap<>(PinningSource.class);
+        counts.forEach((source, count) -> snapshot.put(source, count.sum()));
+        return snapshot;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null
+                ? event.getStackTrace().getFrames()
+                : Collections.emptyList();
+        List<String> classNames = frames.stream()
+                .map(frame -> frame.getMethod().getType().getName())
+                .toList();
+        PinningSource source = classify(classNames);
+        counts.get(source).increment();
+
+        if (log.isWarnEnabled()) {
+            String top = frames.stream()
+                    .limit(8)
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                            + ":" + frame.getLineNumber())
+                    .reduce((a, b) -> a + " <- " + b)
+                    .orElse("<no stack>");
+            log.warn("Virtual thread pinned for {} ms on {} path: {}",
+                    event.getDuration().toMillis(), source, top);
+        }
+    }
+
+    /**
+     * Attributes a pinned stack, innermost frame first, to the code path it belongs to.
+     * The innermost recognisable frame wins, since that is the code holding the monitor.
+     */
+    static PinningSource classify(List<String> classNames) {
+        for (String className : classNames) {
+            if (className.startsWith("org.hibernate.") || className.startsWith("jakarta.persistence.")
+                    || className.startsWith("com.zaxxer.hikari.") || className.startsWith("org.h2.")
+                    || className.startsWith("org.springframework.orm.jpa.")
+                    || className.startsWith("org.springframework.data.jpa.")) {
+                return PinningSource.JPA;
+            }
+            if (className.startsWith("org.springframework.security.core.context.")) {
+                return PinningSource.SECURITY_CONTEXT;
+            }
+            if (className.startsWith("com.example.springsecurityoauth2rest.security.")
+                    || className.startsWith("com.example.springsecurityoauth2rest.github.")) {
+                return PinningSource.AUTHENTICATION_FILTER;
+            }
+        }
+        return PinningSource.OTHER;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.springsecurityoauth2rest.repository;
+
+import com.example.springsecurityoauth2rest.entity.SessionTokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SessionTokenRevocationRepository extends JpaRepository<SessionTokenRevocation, Long> {
+
+    List<SessionTokenRevocation> findByExpiresAtAfter(Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SessionTokenRevocation r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
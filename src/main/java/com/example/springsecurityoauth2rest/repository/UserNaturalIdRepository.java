@@ -0,0 +1,14 @@
+package com.example.springsecurityoauth2rest.repository;
+
+import com.example.springsecurityoauth2rest.entity.User;
+
+import java.util.Optional;
+
+/**
+ * Lookups by username through Hibernate's natural-id API, which the second-level cache
+ * can answer without a query; a derived query such as {@code findByUsername} always runs.
+ */
+public interface UserNaturalIdRepository {
+
+    Optional<User> findByNaturalUsername(String username);
+}
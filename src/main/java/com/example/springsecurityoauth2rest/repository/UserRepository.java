@@ -1,13 +1,25 @@
 package com.example.springsecurityoauth2rest.repository;
 
+import com.example.springsecurityoauth2rest.dto.UserSummary;
 import com.example.springsecurityoauth2rest.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
     
     Optional<User> findByUsername(String username);
     
@@ -16,4 +28,44 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
+
+    // Set-wise uniqueness checks for bulk imports: one query per batch instead of one per row
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Only rows with the given password marker, e.g. those the GitHub user sync created,
+    // whose usernames are GitHub logins rather than local account names
+    @Query("select u.username from User u where u.role = :role and u.enabled = true and u.password = :password")
+    List<String> findEnabledUsernamesByRoleAndPassword(@Param("role") String role, @Param("password") String password);
+
+    // Single-statement deletes: no select first and nothing loaded, unlike deleteById.
+    // Return the number of rows removed.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from User u where u.id in :ids")
+    int deleteUsersByIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset page: an index range scan from the last id seen, never an offset
+    @Query("select new com.example.springsecurityoauth2rest.dto.UserSummary("
+            + "u.id, u.username, u.email, u.firstName, u.lastName, u.role, u.enabled, u.lastSeenAt) "
+            + "from User u where u.id > :afterId order by u.id")
+    List<UserSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Whole table as a forward-only cursor, for exports; the caller must close the stream inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.springsecurityoauth2rest.dto.UserSummary("
+            + "u.id, u.username, u.email, u.firstName, u.lastName, u.role, u.enabled, u.lastSeenAt) "
+            + "from User u order by u.id")
+    Stream<UserSummary> streamAllSummaries();
 }
@@ -0,0 +1,54 @@
+package com.example.springsecurityoauth2rest.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interned, immutable authority lists, one per distinct combination of roles. Every
+ * principal with the same roles shares the same list, so authenticating a request
+ * allocates nothing for its authorities.
+ */
+final class AuthoritySets {
+
+    static final String USER = "USER";
+    static final String ADMIN = "ADMIN";
+
+    // Role combinations are few and come from configuration or signed tokens, so this stays small
+    private static final ConcurrentMap<Set<String>, List<GrantedAuthority>> INTERNED = new ConcurrentHashMap<>();
+
+    // USER first, then alphabetical, so equal role sets always produce equal lists
+    private static final Comparator<String> ROLE_ORDER =
+            Comparator.comparing((String role) -> !USER.equals(role)).thenComparing(Comparator.naturalOrder());
+
+    static final List<GrantedAuthority> USER_ONLY = of(Set.of(USER));
+    static final List<GrantedAuthority> USER_AND_ADMIN = of(Set.of(USER, ADMIN));
+
+    private AuthoritySets() {
+    }
+
+    /**
+     * The shared authority list for the given role names, without the {@code ROLE_} prefix.
+     */
+    static List<GrantedAuthority> of(Collection<String> roles) {
+        Set<String> key = roles instanceof Set<String> set ? set : Set.copyOf(roles);
+        List<GrantedAuthority> interned = INTERNED.get(key);
+        if (interned != null) {
+            return interned;
+        }
+        return INTERNED.computeIfAbsent(Set.copyOf(key), AuthoritySets::create);
+    }
+
+    private static List<GrantedAuthority> create(Set<String> roles) {
+        return roles.stream()
+                .sorted(ROLE_ORDER)
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.springsecurityoauth2rest.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A GitHub identity resolved from a token. Authorities are not part of it: they are
+ * looked up per request by {@link RoleResolver}, so role changes apply without waiting
+ * for the identity to expire. Instances are immutable and shared between all requests carrying the same token, apart
+ * from the access bookkeeping used to decide when to refresh them ahead of expiry.
+ */
+public final class CachedIdentity {
+
+    private final GitHubTokenAuthenticationFilter.GitHubUser user;
+    private final Instant validatedAt;
+    private final String etag;
+    private final AtomicInteger accesses = new AtomicInteger();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public CachedIdentity(GitHubTokenAuthenticationFilter.GitHubUser user,
+                          Instant validatedAt,
+                          String etag) {
+        this.user = user;
+        this.validatedAt = validatedAt;
+        this.etag = etag;
+    }
+
+    /**
+     * The same identity, confirmed unchanged by GitHub at {@code validatedAt}.
+     */
+    public CachedIdentity revalidated(Instant validatedAt, String etag) {
+        return new CachedIdentity(user, validatedAt, etag != null ? etag : this.etag);
+    }
+
+    public GitHubTokenAuthenticationFilter.GitHubUser getUser() {
+        return user;
+    }
+
+    public Instant getValidatedAt() {
+        return validatedAt;
+    }
+
+    /**
+     * GitHub's ETag for the {@code /user} response this identity came from, if any.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Counts a request served from this identity and returns the count since validation.
+     */
+    public int recordAccess() {
+        int count = accesses.get();
+        // Saturate instead of wrapping for identities served for a very long time
+        return count < Integer.MAX_VALUE ? accesses.incrementAndGet() : count;
+    }
+
+    /**
+     * Claims the single background refresh allowed per validated identity.
+     */
+    boolean tryStartRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    /**
+     * Allows another refresh attempt after one that could not be run or did not complete.
+     */
+    void refreshAbandoned() {
+        refreshing.set(false);
+    }
+
+    /**
+     * Whether GitHub confirmed this identity less than {@code maxAge} before {@code now}.
+     */
+    public boolean isFresh(Instant now, Duration maxAge) {
+        return validatedAt.plus(maxAge).isAfter(now);
+    }
+}
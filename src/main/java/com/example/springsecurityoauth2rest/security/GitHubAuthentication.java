@@ -0,0 +1,68 @@
+package com.example.springsecurityoauth2rest.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * A request authenticated with a GitHub token. Unlike Spring's token classes, which copy
+ * the authorities they are given, it keeps the interned list from {@link AuthoritySets},
+ * so authenticating a request allocates nothing for its authorities.
+ */
+public final class GitHubAuthentication implements Authentication {
+
+    private final GitHubTokenAuthenticationFilter.GitHubUser user;
+    private final List<GrantedAuthority> authorities;
+    private volatile boolean authenticated = true;
+
+    public GitHubAuthentication(GitHubTokenAuthenticationFilter.GitHubUser user, List<GrantedAuthority> authorities) {
+        this.user = user;
+        this.authorities = authorities;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    // The GitHub token is never kept
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public GitHubTokenAuthenticationFilter.GitHubUser getDetails() {
+        return user;
+    }
+
+    @Override
+    public String getPrincipal() {
+        return user.getLogin();
+    }
+
+    @Override
+    public String getName() {
+        return user.getLogin();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    // Only created once GitHub has accepted the token, so it can be revoked but never granted
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (authenticated) {
+            throw new IllegalArgumentException("A GitHub authentication cannot be marked authenticated again");
+        }
+        this.authenticated = false;
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubAuthentication[name=" + getName() + ", authorities=" + authorities + "]";
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Bounded cache of validated identities keyed by token digest.
+ *
+ * Backed by Caffeine, whose W-TinyLFU policy keeps frequently used tokens resident
+ * when the size cap is reached instead of simply dropping the oldest entry.
+ *
+ * Entries are retained for the TTL plus the maximum staleness, so an identity can still
+ * be served while GitHub is unavailable. Callers decide freshness from
+ * {@link CachedIdentity#getValidatedAt()}.
+ *
+ * With {@code github.shared-cache.enabled}, a {@link MappedIdentityStore} sits behind
+ * the local cache: identities validated by any instance on the host are found there on
+ * a local miss, and survive restarts. Invalidations reach the shared store at once but
+ * other instances may keep serving their local copy until it is revalidated.
+ */
+@Component
+public class GitHubIdentityCache {
+
+    private final Cache<TokenDigest, CachedIdentity> cache;
+    private final Duration retention;
+    private final MappedIdentityStore sharedStore;
+
+    public GitHubIdentityCache(GitHubProperties properties) {
+        GitHubProperties.Cache config = properties.getCache();
+        this.retention = config.getTtl().plus(config.getMaxStaleness());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        this.sharedStore = openSharedStore(properties.getSharedCache());
+    }
+
+    public CachedIdentity get(TokenDigest digest) {
+        CachedIdentity identity = cache.getIfPresent(digest);
+        if (identity != null || sharedStore == null) {
+            return identity;
+        }
+        identity = sharedStore.get(digest);
+        // The shared store has no expiry of its own
+        if (identity == null || !identity.isFresh(Instant.now(), retention)) {
+            return null;
+        }
+        cache.put(digest, identity);
+        return identity;
+    }
+
+    public void put(TokenDigest digest, CachedIdentity identity) {
+        cache.put(digest, identity);
+        if (sharedStore != null) {
+            sharedStore.put(digest, identity);
+        }
+    }
+
+    public void invalidate(TokenDigest digest) {
+        cache.invalidate(digest);
+        if (sharedStore != null) {
+            sharedStore.invalidate(digest);
+        }
+    }
+
+    /**
+     * A copy of the local cache ordered from most to least valuable to keep, as judged by
+     * the eviction policy.
+     */
+    public Map<TokenDigest, CachedIdentity> hottest() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(Integer.MAX_VALUE))
+                .orElseGet(() -> Map.copyOf(cache.asMap()));
+    }
+
+    public boolean isShared() {
+        return sharedStore != null;
+    }
+
+    public long sharedHitCount() {
+        return sharedStore != null ? sharedStore.hitCount() : 0;
+    }
+
+    public long sharedWritesSkippedCount() {
+        return sharedStore != null ? sharedStore.writesSkippedCount() : 0;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (sharedStore != null) {
+            sharedStore.close();
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static MappedIdentityStore openSharedStore(GitHubProperties.SharedCache config) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        try {
+            return MappedIdentityStore.open(Path.of(config.getPath()), config.getSlots(), config.getSlotSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open shared identity cache " + config.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import com.example.springsecurityoauth2rest.github.GitHubApiClient;
+import com.example.springsecurityoauth2rest.github.GitHubUnavailableException;
+import com.example.springsecurityoauth2rest.github.GitHubUserResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns a GitHub bearer token into a {@link CachedIdentity}, consulting the identity
+ * cache and the memory of rejected tokens before going to the GitHub API. Concurrent
+ * misses for the same token share a single upstream call.
+ *
+ * An expired identity is revalidated with a conditional request on its ETag; a 304
+ * keeps the existing user and costs no primary rate limit. When GitHub
+ * cannot be reached, an identity validated within the staleness limit is served in
+ * place of a fresh one rather than failing the request.
+ *
+ * Identities that are used often are refreshed ahead of expiry: once one is past a
+ * fraction of its TTL, the next request schedules a background revalidation on the
+ * refresh executor and is itself served the current identity. Refreshing is triggered
+ * by requests because only they hold the raw token needed to call GitHub.
+ */
+@Component
+public class GitHubIdentityResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubIdentityResolver.class);
+
+    private final GitHubApiClient gitHubApiClient;
+    private final GitHubIdentityCache identityCache;
+    private final RejectedTokenFilter rejectedTokens;
+    private final SingleFlight<TokenDigest, CachedIdentity> inFlightValidations = new SingleFlight<>();
+    private final Duration ttl;
+    private final Duration maxStaleness;
+    private final Executor refreshExecutor;
+    private final boolean refreshAheadEnabled;
+    private final Duration refreshAfter;
+    private final int refreshMinHits;
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder refreshesScheduled = new LongAdder();
+    private final LongAdder refreshesDropped = new LongAdder();
+    private final LongAdder refreshesFailed = new LongAdder();
+
+    public GitHubIdentityResolver(GitHubApiClient gitHubApiClient, GitHubIdentityCache identityCache,
+                                  RejectedTokenFilter rejectedTokens, GitHubProperties properties,
+                                  @Qualifier("gitHubRefreshExecutor") Executor refreshExecutor) {
+        this.gitHubApiClient = gitHubApiClient;
+        this.identityCache = identityCache;
+        this.rejectedTokens = rejectedTokens;
+        this.ttl = properties.getCache().getTtl();
+        this.maxStaleness = properties.getCache().getMaxStaleness();
+        this.refreshExecutor = refreshExecutor;
+        GitHubProperties.RefreshAhead refreshAhead = properties.getRefreshAhead();
+        this.refreshAheadEnabled = refreshAhead.isEnabled();
+        this.refreshAfter = Duration.ofNanos((long) (ttl.toNanos() * refreshAhead.getFraction()));
+        this.refreshMinHits = refreshAhead.getMinHits();
+    }
+
+    /**
+     * Returns the identity for the token, or {@code null} if GitHub does not accept it.
+     *
+     * @throws GitHubUnavailableException if GitHub gave no verdict and no usable stale identity exists
+     */
+    public CachedIdentity resolve(String token) throws IOException, InterruptedException {
+        TokenDigest digest = TokenDigest.of(token);
+        Instant now = Instant.now();
+
+        CachedIdentity cached = identityCache.get(digest);
+        if (cached != null && cached.isFresh(now, ttl)) {
+            if (refreshAheadEnabled && cached.recordAccess() >= refreshMinHits && !cached.isFresh(now, refreshAfter)) {
+                refreshAhead(token, digest, cached);
+            }
+            return cached;
+        }
+
+        if (cached == null && rejectedTokens.mightBeRejected(digest)) {
+            return null;
+        }
+
+        try {
+            return inFlightValidations.execute(digest, () -> load(token, digest, cached));
+        } catch (GitHubUnavailableException e) {
+            if (cached != null && cached.isFresh(now, ttl.plus(maxStaleness))) {
+                staleServed.increment();
+                return cached;
+            }
+            throw e;
+        }
+    }
+
+    public long coalescedValidations() {
+        return inFlightValidations.coalescedCount();
+    }
+
+    public long staleServedCount() {
+        return staleServed.sum();
+    }
+
+    public long notModifiedCount() {
+        return notModified.sum();
+    }
+
+    public long refreshesScheduledCount() {
+        return refreshesScheduled.sum();
+    }
+
+    public long refreshesDroppedCount() {
+        return refreshesDropped.sum();
+    }
+
+    public long refreshesFailedCount() {
+        return refreshesFailed.sum();
+    }
+
+    private void refreshAhead(String token, TokenDigest digest, CachedIdentity current) {
+        if (!current.tryStartRefresh()) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Shares the in-flight call with any request that finds the entry expired meanwhile
+                    if (inFlightValidations.execute(digest, () -> load(token, digest, current)) == null) {
+                        // No new entry replaced this one (rejected or no verdict), so allow another try
+                        current.refreshAbandoned();
+                        refreshesFailed.increment();
+                    }
+                } catch (InterruptedException e) {
+                    current.refreshAbandoned();
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // The entry is still served; the next hot access or expiry tries again
+                    current.refreshAbandoned();
+                    refreshesFailed.increment();
+                    log.debug("Background refresh of {} failed: {}", digest, e.getMessage());
+                }
+            });
+            refreshesScheduled.increment();
+        } catch (RejectedExecutionException e) {
+            current.refreshAbandoned();
+            refreshesDropped.increment();
+        }
+    }
+
+    private CachedIdentity load(String token, TokenDigest digest, CachedIdentity expired)
+            throws IOException, InterruptedException {
+        String etag = expired != null ? expired.getEtag() : null;
+        GitHubUserResponse response = gitHubApiClient.fetchUser(token, digest, etag);
+
+        // Cache before the in-flight entry is released so late arrivals find it there
+        switch (response.getStatus()) {
+            case OK -> {
+                GitHubTokenAuthenticationFilter.GitHubUser githubUser = response.getUser();
+                CachedIdentity identity = new CachedIdentity(githubUser, Instant.now(), response.getEtag());
+                identityCache.put(digest, identity);
+                return identity;
+            }
+            case NOT_MODIFIED -> {
+                if (expired == null) {
+                    // Cannot happen without an If-None-Match, but never authenticate on nothing
+                    return null;
+                }
+                notModified.increment();
+                CachedIdentity identity = expired.revalidated(Instant.now(), response.getEtag());
+                identityCache.put(digest, identity);
+                return identity;
+            }
+            case UNAUTHORIZED -> {
+                // 401 is GitHub's definitive "bad credentials"; forget any stale identity too
+                rejectedTokens.recordRejected(digest);
+                identityCache.invalidate(digest);
+                return null;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
@@ -1,35 +1,39 @@
 package com.example.springsecurityoauth2rest.security;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.springsecurityoauth2rest.github.GitHubUnavailableException;
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 public class GitHubTokenAuthenticationFilter extends OncePerRequestFilter {
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    // Define admin users here - Replace with your actual GitHub usernames
-    private final List<String> adminUsers = Arrays.asList(
-        "your-github-username", // Replace with your GitHub username
-        "admin-user2"           // Add more admin usernames as needed
-    );
+    /**
+     * Request attribute set when GitHub could not validate the token, holding the
+     * {@link GitHubUnavailableException}. Lets the entry point answer 503 instead of 401.
+     */
+    public static final String UPSTREAM_UNAVAILABLE_ATTRIBUTE =
+            GitHubTokenAuthenticationFilter.class.getName() + ".UPSTREAM_UNAVAILABLE";
+
+    private final GitHubIdentityResolver identityResolver;
+    private final RoleResolver roleResolver;
+    private final GitHubUserSyncService userSyncService;
+    private final ActivePrincipalTracker activePrincipalTracker;
+
+    public GitHubTokenAuthenticationFilter(GitHubIdentityResolver identityResolver, RoleResolver roleResolver,
+                                           GitHubUserSyncService userSyncService,
+                                           ActivePrincipalTracker activePrincipalTracker) {
+        this.identityResolver = identityResolver;
+        this.roleResolver = roleResolver;
+        this.userSyncService = userSyncService;
+        this.activePrincipalTracker = activePrincipalTracker;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
@@ -39,30 +43,30 @@ public class GitHubTokenAuthenticationFilter extends OncePerRequestFilter {
         
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
+
+            // Session JWTs are verified by the resource server, never sent to GitHub
+            if (SessionTokenService.isSessionToken(token)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
             
             try {
-                GitHubUser githubUser = validateTokenWithGitHub(token);
+                CachedIdentity identity = identityResolver.resolve(token);
                 
-                if (githubUser != null) {
-                    List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-                    authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                    
-                    // Check if user is admin
-                    if (adminUsers.contains(githubUser.getLogin())) {
-                        authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-                    }
-                    
-                    UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(
-                            githubUser.getLogin(), 
-                            null, 
-                            authorities
-                        );
+                if (identity != null) {
+                    GitHubUser githubUser = identity.getUser();
                     
-                    // Set additional user details
-                    authentication.setDetails(githubUser);
+                    // Keeps the resolver's shared authority list rather than copying it
+                    GitHubAuthentication authentication = new GitHubAuthentication(
+                            githubUser, roleResolver.authoritiesFor(githubUser.getLogin(), token));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    // Queued only; the users table is written in the background
+                    userSyncService.recordSighting(githubUser);
+                    activePrincipalTracker.record(githubUser.getLogin());
                 }
+            } catch (GitHubUnavailableException e) {
+                logger.warn("GitHub unavailable for token validation: " + e.getMessage());
+                request.setAttribute(UPSTREAM_UNAVAILABLE_ATTRIBUTE, e);
             } catch (Exception e) {
                 logger.warn("GitHub token validation failed: " + e.getMessage());
             }
@@ -71,36 +75,12 @@ public class GitHubTokenAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private GitHubUser validateTokenWithGitHub(String token) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.github.com/user"))
-                .header("Authorization", "Bearer " + token)
-                .header("Accept", "application/vnd.github.v3+json")
-                .header("User-Agent", "Spring-Boot-App")
-                .GET()
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            JsonNode jsonNode = objectMapper.readTree(response.body());
-            return new GitHubUser(
-                jsonNode.get("login").asText(),
-                jsonNode.has("name") && !jsonNode.get("name").isNull() ? jsonNode.get("name").asText() : null,
-                jsonNode.has("email") && !jsonNode.get("email").isNull() ? jsonNode.get("email").asText() : null,
-                jsonNode.has("avatar_url") ? jsonNode.get("avatar_url").asText() : null
-            );
-        }
-        
-        return null;
-    }
-
-    // Inner class for GitHub user data
-    public static class GitHubUser {
-        private String login;
-        private String name;
-        private String email;
-        private String avatarUrl;
+    // Inner class for GitHub user data (immutable, shared across requests via the identity cache)
+    public static final class GitHubUser {
+        private final String login;
+        private final String name;
+        private final String email;
+        private final String avatarUrl;
 
         public GitHubUser(String login, String name, String email, String avatarUrl) {
             this.login = login;
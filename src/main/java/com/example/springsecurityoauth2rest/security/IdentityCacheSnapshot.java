@@ -0,0 +1,279 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Carries the identity cache over a restart: written on graceful shutdown, read back at
+ * startup so a deploy does not send every active token to GitHub at once.
+ *
+ * File layout:
+ * <pre>
+ *   header  magic int, version int, written-at long (epoch millis), CRC32C of those 16 bytes
+ *   blocks  payload length int, entry count int, payload, CRC32C of count and payload
+ *   entry   token digest (32), validated-at long, identity length unsigned short,
+ *           identity as encoded by {@link IdentityCodec}
+ * </pre>
+ * Entries are written hottest first and checksummed per block, so a load cut short by
+ * its time budget still restores the most used identities, and a damaged block costs
+ * only the entries in it. Entries past their TTL are dropped on load. A snapshot is
+ * consumed once: it is deleted after loading, so an older one is never replayed. Each
+ * instance on a host needs a path of its own; the default one is keyed by server port.
+ */
+@Component
+public class IdentityCacheSnapshot implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(IdentityCacheSnapshot.class);
+
+    private static final int MAGIC = 0x4748534E; // "GHSN"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_IDENTITY_LENGTH = 4096;
+    private static final int ENTRY_OVERHEAD = TokenDigest.LENGTH + 8 + 2;
+
+    private final GitHubIdentityCache identityCache;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration loadBudget;
+    private final Duration ttl;
+    private volatile boolean running;
+
+    public IdentityCacheSnapshot(GitHubIdentityCache identityCache, GitHubProperties properties) {
+        this.identityCache = identityCache;
+        GitHubProperties.Snapshot config = properties.getSnapshot();
+        this.enabled = config.isEnabled();
+        this.path = Path.of(config.getPath());
+        this.loadBudget = config.getLoadBudget();
+        this.ttl = properties.getCache().getTtl();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled && Files.exists(path)) {
+            load();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (enabled) {
+            write();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Start before the web server accepts requests and stop after it has drained them
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Restores identities from the snapshot until it is exhausted or the load budget is spent.
+     *
+     * @return the number of identities restored
+     */
+    public int load() {
+        long started = System.nanoTime();
+        long deadline = started + loadBudget.toNanos();
+        long expiredBefore = Instant.now().minus(ttl).toEpochMilli();
+        int restored = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(16) != crc(header, 0, 16)) {
+                log.warn("Ignoring identity cache snapshot {}: unknown format or damaged header", path);
+                return 0;
+            }
+
+            ByteBuffer frame = ByteBuffer.allocate(8);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE + 4);
+            while (System.nanoTime() < deadline) {
+                frame.clear();
+                if (channel.read(frame) <= 0) {
+                    break;
+                }
+                readFully(channel, frame);
+                int length = frame.getInt(0);
+                int count = frame.getInt(4);
+                if (length < 0 || length > BLOCK_SIZE) {
+                    log.warn("Identity cache snapshot {} is damaged; restored what preceded it", path);
+                    break;
+                }
+                block.clear().limit(length + 4);
+                readFully(channel, block);
+                if (block.getInt(length) != blockCrc(count, block, length)) {
+                    // Framing is intact, so only this block's entries are lost
+                    log.warn("Skipping damaged block in identity cache snapshot {}", path);
+                    continue;
+                }
+                block.position(0).limit(length);
+                restored += restoreBlock(block, count, expiredBefore);
+            }
+            if (System.nanoTime() >= deadline) {
+                log.warn("Identity cache snapshot load stopped at its {} budget", loadBudget);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load identity cache snapshot {}: {}", path, e.getMessage());
+        } finally {
+            deleteQuietly(path);
+        }
+        log.info("Restored {} identities from snapshot in {} ms", restored,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+        return restored;
+    }
+
+    /**
+     * Writes every cached identity to the snapshot, replacing the previous one atomically.
+     *
+     * @return the number of identities written
+     */
+    public int write() {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = null;
+        int written = 0;
+        try {
+            Files.createDirectories(directory);
+            // A name of its own, in the target directory so the final move stays atomic
+            temporary = Files.createTempFile(directory, path.getFileName() + ".", ".tmp", ownerOnly());
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putLong(Instant.now().toEpochMilli());
+                header.putInt(crc(header, 0, 16)).flip();
+                writeFully(channel, header);
+
+                // 8 bytes of framing ahead of the payload, 4 of checksum after it
+                ByteBuffer block = ByteBuffer.allocateDirect(8 + BLOCK_SIZE + 4);
+                block.position(8);
+                int count = 0;
+                for (Map.Entry<TokenDigest, CachedIdentity> entry : identityCache.hottest().entrySet()) {
+                    byte[] identity = IdentityCodec.encode(entry.getValue(), MAX_IDENTITY_LENGTH);
+                    if (identity == null) {
+                        continue;
+                    }
+                    if (block.position() - 8 + ENTRY_OVERHEAD + identity.length > BLOCK_SIZE) {
+                        flushBlock(channel, block, count);
+                        count = 0;
+                    }
+                    block.put(entry.getKey().toBytes())
+                            .putLong(entry.getValue().getValidatedAt().toEpochMilli())
+                            .putShort((short) identity.length)
+                            .put(identity);
+                    count++;
+                    written++;
+                }
+                if (count > 0) {
+                    flushBlock(channel, block, count);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote {} identities to snapshot {}", written, path);
+        } catch (IOException e) {
+            log.warn("Could not write identity cache snapshot {}: {}", path, e.getMessage());
+            if (temporary != null) {
+                deleteQuietly(temporary);
+            }
+            return 0;
+        }
+        return written;
+    }
+
+    private int restoreBlock(ByteBuffer block, int count, long expiredBefore) {
+        int restored = 0;
+        byte[] digest = new byte[TokenDigest.LENGTH];
+        for (int i = 0; i < count; i++) {
+            block.get(digest);
+            long validatedAt = block.getLong();
+            int length = Short.toUnsignedInt(block.getShort());
+            if (validatedAt <= expiredBefore) {
+                block.position(block.position() + length);
+                continue;
+            }
+            ByteBuffer identity = block.slice(block.position(), length);
+            block.position(block.position() + length);
+            identityCache.put(TokenDigest.fromBytes(digest), IdentityCodec.decode(identity, Instant.ofEpochMilli(validatedAt)));
+            restored++;
+        }
+        return restored;
+    }
+
+    private static void flushBlock(FileChannel channel, ByteBuffer block, int count) throws IOException {
+        int length = block.position() - 8;
+        block.putInt(0, length).putInt(4, count);
+        block.putInt(blockCrc(count, block.slice(8, length), length));
+        block.flip();
+        writeFully(channel, block);
+        block.clear().position(8);
+    }
+
+    private static int blockCrc(int count, ByteBuffer payload, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(4).putInt(0, count));
+        crc.update(payload.duplicate().position(0).limit(length));
+        return (int) crc.getValue();
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot ends mid-record");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static FileAttribute<?>[] ownerOnly() {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+        }
+        return new FileAttribute<?>[0];
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
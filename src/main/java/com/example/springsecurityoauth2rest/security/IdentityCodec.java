@@ -0,0 +1,81 @@
+package com.example.springsecurityoauth2rest.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary form of a {@link CachedIdentity}, less its validation time, for the
+ * stores that keep identities outside the heap.
+ *
+ * Fields in order: etag, login, name, email, avatar url. Strings are an unsigned short
+ * length followed by UTF-8, with 0xFFFF standing for null.
+ *
+ * Roles are deliberately not encoded. {@link RoleResolver} works them out per request,
+ * so an identity read back from a shared store cannot carry roles revoked since it was
+ * written.
+ */
+final class IdentityCodec {
+
+    private static final int NULL_STRING = 0xFFFF;
+
+    private IdentityCodec() {
+    }
+
+    /**
+     * Encodes the identity, or returns {@code null} if it needs more than {@code maxLength} bytes.
+     */
+    static byte[] encode(CachedIdentity identity, int maxLength) {
+        ByteBuffer out = ByteBuffer.allocate(maxLength);
+        GitHubTokenAuthenticationFilter.GitHubUser user = identity.getUser();
+        if (!putString(out, identity.getEtag())
+                || !putString(out, user.getLogin())
+                || !putString(out, user.getName())
+                || !putString(out, user.getEmail())
+                || !putString(out, user.getAvatarUrl())) {
+            return null;
+        }
+        byte[] encoded = new byte[out.position()];
+        out.flip().get(encoded);
+        return encoded;
+    }
+
+    /**
+     * Decodes an identity from the buffer's position, advancing past it.
+     *
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the identity does
+     */
+    static CachedIdentity decode(ByteBuffer in, Instant validatedAt) {
+        String etag = getString(in);
+        GitHubTokenAuthenticationFilter.GitHubUser user = new GitHubTokenAuthenticationFilter.GitHubUser(
+                getString(in), getString(in), getString(in), getString(in));
+        return new CachedIdentity(user, validatedAt, etag);
+    }
+
+    private static boolean putString(ByteBuffer out, String value) {
+        if (value == null) {
+            if (out.remaining() < 2) {
+                return false;
+            }
+            out.putShort((short) NULL_STRING);
+            return true;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING || out.remaining() < 2 + bytes.length) {
+            return false;
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+        return true;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.springsecurityoauth2rest.security;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Identity store in a memory-mapped file, shared by every JVM on the host that maps it.
+ *
+ * The file is a fixed array of fixed-size slots, so nothing is ever allocated or moved
+ * inside it and it adds nothing to the Java heap. A digest hashes to a short run of
+ * slots; a write takes the matching slot, else an empty one, else the one validated
+ * longest ago, and re-checks that choice once it holds the slot so a digest is never
+ * stored twice.
+ *
+ * Each slot is guarded by a sequence lock in its first word: a writer CASes the sequence
+ * from even to odd, writes, then publishes the next even value. Readers take no lock;
+ * they compare the digest in place, copy only a matching slot into a per-thread scratch
+ * buffer, and retry if the sequence moved underneath them. Both steps are VarHandle
+ * operations on the mapping, which are atomic across processes sharing it.
+ *
+ * Slot layout (bytes):
+ * <pre>
+ *   0  sequence         long, odd while a write is in progress
+ *   8  token digest     32
+ *  40  validated at     long, epoch millis; 0 marks an empty slot
+ *  48  payload length   unsigned short
+ *  50  payload          identity as encoded by {@link IdentityCodec}
+ * </pre>
+ * Identities that do not fit in a slot are simply not shared.
+ */
+final class MappedIdentityStore implements Closeable {
+
+    private static final int MAGIC = 0x47484943; // "GHIC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int DIGEST_OFFSET = 8;
+    private static final int VALIDATED_AT_OFFSET = DIGEST_OFFSET + TokenDigest.LENGTH;
+    private static final int PAYLOAD_LENGTH_OFFSET = VALIDATED_AT_OFFSET + 8;
+    private static final int PAYLOAD_OFFSET = PAYLOAD_LENGTH_OFFSET + 2;
+
+    private static final int MIN_SLOT_SIZE = 256;
+    private static final int PROBE_LENGTH = 4;
+    private static final int MAX_READ_ATTEMPTS = 8;
+    private static final int MAX_LOCK_ATTEMPTS = 64;
+    private static final int MAX_PUT_ATTEMPTS = 16;
+
+    // Native order: every process sharing the file runs on this machine
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int slotSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder writesSkipped = new LongAdder();
+    // Reused for every read on the thread, so a lookup allocates only the identity it returns
+    private final ThreadLocal<ByteBuffer> scratch;
+
+    private MappedIdentityStore(FileChannel channel, MappedByteBuffer buffer, int slotCount, int slotSize) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.slotSize = slotSize;
+        this.scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(slotSize));
+    }
+
+    /**
+     * Maps the store at {@code path}, creating it with owner-only permissions if absent.
+     * Concurrent openers on the host are serialized with a file lock so only one formats it.
+     *
+     * @throws IllegalStateException if the existing file was formatted with another geometry
+     */
+    static MappedIdentityStore open(Path path, int slotCount, int slotSize) throws IOException {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two");
+        }
+        if (slotSize < MIN_SLOT_SIZE || slotSize % 8 != 0) {
+            throw new IllegalArgumentException("Slot size must be a multiple of 8 and at least " + MIN_SLOT_SIZE);
+        }
+        long fileSize = HEADER_SIZE + (long) slotCount * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Shared identity cache cannot exceed 2 GB");
+        }
+
+        createOwnerOnly(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try (FileLock ignored = channel.lock()) {
+            boolean fresh = channel.size() == 0;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (fresh) {
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, slotCount);
+                buffer.putInt(12, slotSize);
+                // Magic last: a file without it is treated as unformatted
+                buffer.putInt(0, MAGIC);
+                buffer.force();
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != slotCount || buffer.getInt(12) != slotSize) {
+                throw new IllegalStateException("Shared identity cache " + path
+                        + " has a different format or geometry; remove it or configure a new path");
+            }
+            return new MappedIdentityStore(channel, buffer, slotCount, slotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the stored identity for the digest, or {@code null} if there is none or its
+     * slot stayed busy with writers for every read attempt.
+     */
+    CachedIdentity get(TokenDigest digest) {
+        int first = firstSlot(digest);
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            CachedIdentity identity = read(slotOffset((first + probe) & (slotCount - 1)), digest);
+            if (identity != null) {
+                hits.increment();
+                return identity;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the identity, replacing any previous one for the digest. Returns {@code false}
+     * if it was not stored because it is too large for a slot or every candidate slot is busy.
+     */
+    boolean put(TokenDigest digest, CachedIdentity identity) {
+        byte[] payload = IdentityCodec.encode(identity, slotSize - PAYLOAD_OFFSET);
+        if (payload == null) {
+            writesSkipped.increment();
+            return false;
+        }
+        for (int attempt = 0; attempt < MAX_PUT_ATTEMPTS; attempt++) {
+            int offset = chooseSlot(digest);
+            long sequence = lock(offset);
+            if (sequence < 0) {
+                break;
+            }
+            // The choice was made unlocked: another writer may since have stored this digest
+            // elsewhere in the run, or be about to. Either way, step back and choose again.
+            if (othersLocked(digest, offset) || chooseSlot(digest) != offset) {
+                LONGS.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence + 2);
+                Thread.onSpinWait();
+                continue;
+            }
+            buffer.put(offset + DIGEST_OFFSET, digest.toBytes());
+            buffer.putLong(offset + VALIDATED_AT_OFFSET, identity.getValidatedAt().toEpochMilli());
+            buffer.putShort(offset + PAYLOAD_LENGTH_OFFSET, (short) payload.length);
+            buffer.put(offset + PAYLOAD_OFFSET, payload);
+            LONGS.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence + 2);
+            return true;
+        }
+        writesSkipped.increment();
+        return false;
+    }
+
+    void invalidate(TokenDigest digest) {
+        int first = firstSlot(digest);
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            int offset = slotOffset((first + probe) & (slotCount - 1));
+            if (!digest.matches(buffer, offset + DIGEST_OFFSET)) {
+                continue;
+            }
+            long sequence = lock(offset);
+            if (sequence < 0) {
+                return;
+            }
+            if (digest.matches(buffer, offset + DIGEST_OFFSET)) {
+                buffer.putLong(offset + VALIDATED_AT_OFFSET, 0L);
+            }
+            LONGS.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence + 2);
+        }
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long writesSkippedCount() {
+        return writesSkipped.sum();
+    }
+
+    long capacity() {
+        return slotCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is collected
+        channel.close();
+    }
+
+    private CachedIdentity read(int offset, TokenDigest digest) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long before = (long) LONGS.getAcquire(buffer, offset + SEQUENCE_OFFSET);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long validatedAt = buffer.getLong(offset + VALIDATED_AT_OFFSET);
+            boolean match = validatedAt != 0 && digest.matches(buffer, offset + DIGEST_OFFSET);
+            int length = Math.min(Short.toUnsignedInt(buffer.getShort(offset + PAYLOAD_LENGTH_OFFSET)),
+                    slotSize - PAYLOAD_OFFSET);
+            ByteBuffer view = scratch.get().clear();
+            if (match) {
+                buffer.get(offset + PAYLOAD_OFFSET, view.array(), 0, length);
+            }
+            VarHandle.loadLoadFence();
+            long after = (long) LONGS.getVolatile(buffer, offset + SEQUENCE_OFFSET);
+            if (before != after) {
+                continue;
+            }
+            // Everything read above is a consistent snapshot, whatever writers do next
+            if (!match) {
+                return null;
+            }
+            try {
+                view.limit(length);
+                return IdentityCodec.decode(view, Instant.ofEpochMilli(validatedAt));
+            } catch (RuntimeException e) {
+                // Only reachable if the file was damaged outside this class
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private int chooseSlot(TokenDigest digest) {
+        int first = firstSlot(digest);
+        int chosen = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            int offset = slotOffset((first + probe) & (slotCount - 1));
+            // Unlocked read; a race only makes the choice slightly worse, never incorrect
+            long validatedAt = buffer.getLong(offset + VALIDATED_AT_OFFSET);
+            if (validatedAt != 0 && digest.matches(buffer, offset + DIGEST_OFFSET)) {
+                return offset;
+            }
+            if (validatedAt < oldest) {
+                oldest = validatedAt;
+                chosen = offset;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Whether a writer holds any slot in the digest's run other than {@code offset}. Each
+     * writer locks its own slot before asking, so of two writers in the same run at least
+     * one sees the other and retries; the digest can never end up in two slots.
+     */
+    private boolean othersLocked(TokenDigest digest, int offset) {
+        int first = firstSlot(digest);
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            int other = slotOffset((first + probe) & (slotCount - 1));
+            if (other != offset && ((long) LONGS.getVolatile(buffer, other + SEQUENCE_OFFSET) & 1) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the slot's sequence from even to odd and returns the even value, or -1 if
+     * another writer held it throughout. A writer that dies holding the lock leaves the
+     * slot unreadable; it then behaves like a permanently missing entry.
+     */
+    private long lock(int offset) {
+        for (int attempt = 0; attempt < MAX_LOCK_ATTEMPTS; attempt++) {
+            long sequence = (long) LONGS.getVolatile(buffer, offset + SEQUENCE_OFFSET);
+            if ((sequence & 1) == 0
+                    && LONGS.compareAndSet(buffer, offset + SEQUENCE_OFFSET, sequence, sequence + 1)) {
+                return sequence;
+            }
+            Thread.onSpinWait();
+        }
+        return -1;
+    }
+
+    private int firstSlot(TokenDigest digest) {
+        return (int) (digest.longAt(0) & (slotCount - 1));
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private static void createOwnerOnly(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try {
+            // Identities are personal data; keep them from other users on the host
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } else {
+                Files.createFile(path);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Created by this or another instance earlier
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.RoleProperties;
+import com.example.springsecurityoauth2rest.github.GitHubApiClient;
+import com.example.springsecurityoauth2rest.github.GitHubMemberships;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maps GitHub organization and team membership to roles, per {@code app.roles.membership-roles}.
+ *
+ * Membership is fetched with one GraphQL query per user and cached by login for
+ * {@code app.roles.membership-ttl}, independently of the identity cache. Results are
+ * interned by the roles they grant, so users with the same memberships share a single
+ * {@link MembershipRoles}. Without any membership rules nothing is ever fetched.
+ *
+ * An incomplete answer (a token without {@code read:org}, or a refused query) is cached
+ * only for the token that got it, so a properly scoped token for the same user still
+ * gets its own lookup.
+ *
+ * If GitHub cannot answer, the user gets no membership roles for that request rather
+ * than being refused; the lookup is retried on the next one.
+ */
+@Component
+public class MembershipResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipResolver.class);
+    // ':' never appears in a GitHub login, so token keys cannot collide with login keys
+    private static final String TOKEN_KEY_PREFIX = "token:";
+
+    private final GitHubApiClient gitHubApiClient;
+    // "org" or "org/team", lower-cased -> roles it grants
+    private final Map<String, Set<String>> rules;
+    // Organizations whose teams the query has to ask about
+    private final List<String> teamOrgs;
+    // Lower-cased login, or TOKEN_KEY_PREFIX + token digest for incomplete answers
+    private final Cache<String, MembershipRoles> cache;
+    private final SingleFlight<String, MembershipRoles> inFlightLookups = new SingleFlight<>();
+    private final ConcurrentMap<Set<String>, MembershipRoles> interned = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+
+    public MembershipResolver(GitHubApiClient gitHubApiClient, RoleProperties properties) {
+        this.gitHubApiClient = gitHubApiClient;
+        Map<String, Set<String>> rules = new HashMap<>();
+        Set<String> teamOrgs = new TreeSet<>();
+        properties.getMembershipRoles().forEach((role, memberships) -> {
+            for (String membership : memberships) {
+                String rule = membership.trim().toLowerCase(Locale.ROOT);
+                rules.computeIfAbsent(rule, key -> new HashSet<>()).add(role.trim().toUpperCase(Locale.ROOT));
+                int slash = rule.indexOf('/');
+                if (slash > 0) {
+                    teamOrgs.add(rule.substring(0, slash));
+                }
+            }
+        });
+        this.rules = Map.copyOf(rules);
+        this.teamOrgs = List.copyOf(teamOrgs);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMembershipCacheSize())
+                .expireAfterWrite(properties.getMembershipTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The membership roles of {@code login}, looked up with its {@code token} on a cache miss.
+     */
+    public MembershipRoles rolesFor(String login, String token) {
+        if (rules.isEmpty()) {
+            return MembershipRoles.NONE;
+        }
+        String key = login.toLowerCase(Locale.ROOT);
+        MembershipRoles cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        String tokenKey = TOKEN_KEY_PREFIX + TokenDigest.of(token).toHex();
+        cached = cache.getIfPresent(tokenKey);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return inFlightLookups.execute(tokenKey, () -> load(key, tokenKey, login, token));
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Could not fetch GitHub memberships for {}: {}", login, e.getMessage());
+            return MembershipRoles.NONE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return MembershipRoles.NONE;
+        }
+    }
+
+    public void invalidate(String login) {
+        cache.invalidate(login.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    // Distinct MembershipRoles instances, i.e. distinct role combinations seen
+    public int internedCount() {
+        return interned.size();
+    }
+
+    private MembershipRoles load(String key, String tokenKey, String login, String token)
+            throws IOException, InterruptedException {
+        GitHubMemberships memberships = gitHubApiClient.fetchMemberships(token, login, teamOrgs);
+        Set<String> roles = new HashSet<>();
+        for (String membership : memberships.memberships()) {
+            Set<String> granted = rules.get(membership);
+            if (granted != null) {
+                roles.addAll(granted);
+            }
+        }
+        MembershipRoles result = roles.isEmpty()
+                ? MembershipRoles.NONE
+                : interned.computeIfAbsent(Set.copyOf(roles), MembershipRoles::new);
+        cache.put(memberships.complete() ? key : tokenKey, result);
+        return result;
+    }
+}
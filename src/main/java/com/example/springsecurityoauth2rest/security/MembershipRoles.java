@@ -0,0 +1,42 @@
+package com.example.springsecurityoauth2rest.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Roles a user holds through GitHub organization or team membership, with the authority
+ * lists for that user already worked out both with and without {@code ROLE_ADMIN}.
+ * Instances are interned by role set, so every member of the same teams shares one.
+ */
+public final class MembershipRoles {
+
+    public static final MembershipRoles NONE = new MembershipRoles(Set.of());
+
+    private final Set<String> roles;
+    private final List<GrantedAuthority> asUser;
+    private final List<GrantedAuthority> asAdmin;
+
+    MembershipRoles(Set<String> roles) {
+        this.roles = Set.copyOf(roles);
+        Set<String> user = new HashSet<>(roles);
+        user.add(AuthoritySets.USER);
+        Set<String> admin = new HashSet<>(user);
+        admin.add(AuthoritySets.ADMIN);
+        this.asUser = AuthoritySets.of(user);
+        this.asAdmin = AuthoritySets.of(admin);
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * The full authorities of a user with these memberships, given whether the admin index lists them.
+     */
+    List<GrantedAuthority> authorities(boolean admin) {
+        return admin ? asAdmin : asUser;
+    }
+}
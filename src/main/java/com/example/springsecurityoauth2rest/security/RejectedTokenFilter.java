@@ -0,0 +1,155 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers digests of tokens GitHub has rejected, so repeats can be turned away
+ * without an upstream call.
+ *
+ * Backed by two Bloom filter generations of fixed size. New rejections go into the
+ * current generation and lookups check both. When the current generation is half a
+ * window old, or has taken its planned number of insertions, the older one is
+ * discarded. A rejection is therefore remembered for between half and a whole window,
+ * the false-positive rate stays at its configured bound, and a flood of random tokens
+ * only shortens memory rather than growing the heap.
+ */
+@Component
+public class RejectedTokenFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final long halfWindowNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<Generations> generations;
+    private final LongAdder shortCircuits = new LongAdder();
+
+    @Autowired
+    public RejectedTokenFilter(GitHubProperties properties) {
+        this(properties.getNegativeCache(), System::nanoTime);
+    }
+
+    RejectedTokenFilter(GitHubProperties.NegativeCache config, LongSupplier nanoClock) {
+        long n = config.getExpectedInsertions();
+        double p = config.getFalsePositiveProbability();
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        // Round up to whole 64-bit words
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, (bits + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+        this.halfWindowNanos = config.getWindow().dividedBy(2).toNanos();
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.generations = new AtomicReference<>(new Generations(newGeneration(now), newGeneration(now)));
+    }
+
+    public boolean mightBeRejected(TokenDigest digest) {
+        Generations current = rotateIfDue();
+        if (current.current.mightContain(digest) || current.previous.mightContain(digest)) {
+            shortCircuits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void recordRejected(TokenDigest digest) {
+        rotateIfDue().current.add(digest);
+    }
+
+    public long shortCircuitCount() {
+        return shortCircuits.sum();
+    }
+
+    /**
+     * Rejections recorded in the current generation.
+     */
+    public long recentRejections() {
+        return generations.get().current.insertions.get();
+    }
+
+    /**
+     * Heap footprint of the bit sets, fixed at construction.
+     */
+    public long memoryBytes() {
+        return 2L * bitCount / 8;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private Generations rotateIfDue() {
+        Generations current = generations.get();
+        long now = nanoClock.getAsLong();
+        boolean expired = now - current.current.createdAt >= halfWindowNanos;
+        boolean full = current.current.insertions.get() >= expectedInsertions;
+        if (expired || full) {
+            // After a full window without traffic both generations are stale
+            Generation previous = now - current.current.createdAt >= 2 * halfWindowNanos
+                    ? newGeneration(now)
+                    : current.current;
+            Generations rotated = new Generations(newGeneration(now), previous);
+            // Losing the race is fine: someone else rotated and we use their result
+            return generations.compareAndSet(current, rotated) ? rotated : generations.get();
+        }
+        return current;
+    }
+
+    private Generation newGeneration(long now) {
+        return new Generation(bitCount, hashCount, now);
+    }
+
+    private record Generations(Generation current, Generation previous) {
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray words;
+        private final int bitCount;
+        private final int hashCount;
+        private final long createdAt;
+        private final AtomicLong insertions = new AtomicLong();
+
+        Generation(int bitCount, int hashCount, long createdAt) {
+            this.words = new AtomicLongArray(bitCount / 64);
+            this.bitCount = bitCount;
+            this.hashCount = hashCount;
+            this.createdAt = createdAt;
+        }
+
+        void add(TokenDigest digest) {
+            long h1 = digest.longAt(0);
+            long h2 = digest.longAt(8);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.weakCompareAndSetVolatile(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+            insertions.incrementAndGet();
+        }
+
+        boolean mightContain(TokenDigest digest) {
+            long h1 = digest.longAt(0);
+            long h2 = digest.longAt(8);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
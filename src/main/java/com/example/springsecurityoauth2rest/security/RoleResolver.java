@@ -0,0 +1,111 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.RoleProperties;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decides the authorities of a GitHub login on every authenticated request.
+ *
+ * Admins come from {@code app.roles.admin-users} and, optionally, enabled rows of the
+ * {@code users} table with role {@code ADMIN} that the GitHub user sync created. Local
+ * accounts are left out: their usernames are not GitHub logins, and whoever holds the same
+ * login on GitHub must not become an admin through them. The two are merged into a hash set that is
+ * rebuilt in the background and swapped in whole, so a lookup is a single set probe and
+ * changes take effect without a restart. Further roles can come from GitHub organization
+ * and team membership through {@link MembershipResolver}. Lookups return shared lists
+ * from {@link AuthoritySets} and, once memberships are cached, allocate nothing.
+ */
+@Component
+public class RoleResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleResolver.class);
+
+    private final RoleProperties properties;
+    private final UserRepository userRepository;
+    private final MembershipResolver membershipResolver;
+    private volatile Set<String> admins;
+    private volatile Instant loadedAt;
+
+    public RoleResolver(RoleProperties properties, UserRepository userRepository,
+                        MembershipResolver membershipResolver) {
+        this.properties = properties;
+        this.userRepository = userRepository;
+        this.membershipResolver = membershipResolver;
+        // Configured admins are known immediately; the database joins on the first reload
+        this.admins = normalize(properties.getAdminUsers());
+        this.loadedAt = Instant.now();
+    }
+
+    /**
+     * Authorities from the admin index alone, for callers without the user's GitHub token.
+     */
+    public List<GrantedAuthority> authoritiesFor(String login) {
+        return isAdmin(login) ? AuthoritySets.USER_AND_ADMIN : AuthoritySets.USER_ONLY;
+    }
+
+    /**
+     * Authorities from the admin index and from the user's GitHub memberships, which are
+     * fetched with {@code token} if not cached.
+     */
+    public List<GrantedAuthority> authoritiesFor(String login, String token) {
+        return membershipResolver.rolesFor(login, token).authorities(isAdmin(login));
+    }
+
+    public boolean isAdmin(String login) {
+        // toLowerCase returns the same instance when there is nothing to change
+        return login != null && admins.contains(login.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Rebuilds the admin set. If the database cannot be read, the previous set is kept.
+     */
+    @Scheduled(fixedDelayString = "${app.roles.reload-interval:30s}")
+    public void reload() {
+        Set<String> reloaded = new HashSet<>(normalize(properties.getAdminUsers()));
+        if (properties.isUseDatabase()) {
+            try {
+                reloaded.addAll(normalize(userRepository.findEnabledUsernamesByRoleAndPassword(
+                        AuthoritySets.ADMIN, GitHubUserSyncService.NO_PASSWORD)));
+            } catch (RuntimeException e) {
+                log.warn("Could not load admin users from the database, keeping the previous set: {}", e.getMessage());
+                return;
+            }
+        }
+        Set<String> previous = admins;
+        admins = Set.copyOf(reloaded);
+        loadedAt = Instant.now();
+        if (!previous.equals(admins)) {
+            log.info("Admin users reloaded: {} admins", admins.size());
+        }
+    }
+
+    public int adminCount() {
+        return admins.size();
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    private static Set<String> normalize(List<String> logins) {
+        Set<String> normalized = new HashSet<>();
+        for (String login : logins) {
+            if (login != null && !login.isBlank()) {
+                normalized.add(login.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return Set.copyOf(normalized);
+    }
+}
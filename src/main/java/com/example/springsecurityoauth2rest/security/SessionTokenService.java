@@ -0,0 +1,319 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.SessionTokenProperties;
+import com.example.springsecurityoauth2rest.entity.SessionTokenRevocation;
+import com.example.springsecurityoauth2rest.repository.SessionTokenRevocationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mints and verifies short-lived session JWTs in exchange for a validated GitHub token.
+ *
+ * Tokens are HS256-signed with keys from configuration, shared by every instance, so
+ * verifying one is a local signature check with no I/O. The first configured secret signs
+ * and the others keep verifying tokens already issued; keys are rotated by changing the
+ * configured list, which is re-read while running when it comes from a file.
+ *
+ * Tokens can be revoked early, individually by {@code jti} or all at once for a login.
+ * Revocations are written to the database and read back by every instance every few
+ * seconds into in-memory sets, which verification checks; they only need to be
+ * remembered for one token lifetime.
+ */
+@Component
+public class SessionTokenService {
+
+    public static final String ROLES_CLAIM = "roles";
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SessionTokenProperties properties;
+    private final SessionTokenRevocationRepository revocations;
+    private final AtomicReference<List<JWK>> keys = new AtomicReference<>();
+    private final JwtEncoder encoder;
+    private final JwtDecoder decoder;
+    private final Cache<String, Boolean> revokedTokenIds;
+    private final Cache<String, Instant> revokedBefore;
+    private volatile FileTime secretsFileModified;
+
+    public SessionTokenService(SessionTokenProperties properties, SessionTokenRevocationRepository revocations) {
+        this.properties = properties;
+        this.revocations = revocations;
+        this.keys.set(initialKeys());
+        this.revokedTokenIds = Caffeine.newBuilder().expireAfterWrite(properties.getTtl()).build();
+        this.revokedBefore = Caffeine.newBuilder().expireAfterWrite(properties.getTtl()).build();
+        refreshRevocations();
+
+        // Only the signing key is offered to the encoder; every retained key verifies
+        JWKSource<SecurityContext> signingKey = (selector, context) -> selector.select(new JWKSet(keys.get().get(0)));
+        JWKSource<SecurityContext> verificationKeys = (selector, context) -> selector.select(new JWKSet(keys.get()));
+        this.encoder = new NimbusJwtEncoder(signingKey);
+        this.decoder = createDecoder(verificationKeys);
+    }
+
+    public record SessionToken(String value, String id, Instant expiresAt) {
+    }
+
+    public SessionToken mint(GitHubTokenAuthenticationFilter.GitHubUser user,
+                             Collection<? extends GrantedAuthority> authorities) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(properties.getTtl());
+        String id = UUID.randomUUID().toString();
+        List<String> roles = authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .map(authority -> authority.substring("ROLE_".length()))
+                .toList();
+
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .issuer(properties.getIssuer())
+                .subject(user.getLogin())
+                .id(id)
+                .issuedAt(now)
+                .expiresAt(expiresAt)
+                .claim(ROLES_CLAIM, roles);
+        if (user.getName() != null) {
+            claims.claim("name", user.getName());
+        }
+        if (user.getEmail() != null) {
+            claims.claim("email", user.getEmail());
+        }
+        if (user.getAvatarUrl() != null) {
+            claims.claim("avatar_url", user.getAvatarUrl());
+        }
+
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).keyId(keys.get().get(0).getKeyID()).build();
+        String value = encoder.encode(JwtEncoderParameters.from(header, claims.build())).getTokenValue();
+        return new SessionToken(value, id, expiresAt);
+    }
+
+    public JwtDecoder decoder() {
+        return decoder;
+    }
+
+    /**
+     * Converts a verified session JWT into the same shape of authentication the GitHub
+     * filter produces: login as name, roles as authorities, {@code GitHubUser} as details.
+     */
+    public AbstractAuthenticationToken toAuthentication(Jwt jwt) {
+        List<String> roles = jwt.getClaimAsStringList(ROLES_CLAIM);
+        List<GrantedAuthority> authorities = roles != null ? AuthoritySets.of(roles) : List.of();
+        JwtAuthenticationToken authentication = new JwtAuthenticationToken(jwt, authorities);
+        authentication.setDetails(new GitHubTokenAuthenticationFilter.GitHubUser(
+                jwt.getSubject(),
+                jwt.getClaimAsString("name"),
+                jwt.getClaimAsString("email"),
+                jwt.getClaimAsString("avatar_url")));
+        return authentication;
+    }
+
+    /**
+     * Re-reads {@code app.session-token.secrets-file} if it has changed since it was last
+     * read. A file that cannot be read or holds no valid secret leaves the keys as they are.
+     */
+    @Scheduled(fixedDelayString = "${app.session-token.reload-interval:60s}")
+    public void reloadKeys() {
+        if (properties.getSecretsFile() == null) {
+            return;
+        }
+        Path file = Path.of(properties.getSecretsFile());
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(secretsFileModified)) {
+                return;
+            }
+            keys.set(keysFor(readSecrets(file)));
+            secretsFileModified = modified;
+            log.info("Reloaded session token keys from {}; {} signs", file, activeKeyId());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not reload session token secrets from {}, keeping the current keys: {}",
+                    file, e.getMessage());
+        }
+    }
+
+    public String activeKeyId() {
+        return keys.get().get(0).getKeyID();
+    }
+
+    public void revoke(String tokenId) {
+        Instant now = Instant.now();
+        revokedTokenIds.put(tokenId, Boolean.TRUE);
+        revocations.save(SessionTokenRevocation.ofToken(tokenId, now, now.plus(properties.getTtl())));
+    }
+
+    /**
+     * Revokes every session token issued to {@code login} up to now.
+     */
+    public void revokeAllFor(String login) {
+        Instant now = Instant.now();
+        revokedBefore.asMap().merge(login, now, SessionTokenService::later);
+        revocations.save(SessionTokenRevocation.ofLogin(login, now, now.plus(properties.getTtl())));
+    }
+
+    /**
+     * Picks up revocations made by other instances, and deletes those no longer needed.
+     * If the database cannot be read, the revocations already known stay in force.
+     */
+    @Scheduled(fixedDelayString = "${app.session-token.revocation-refresh-interval:5s}")
+    public void refreshRevocations() {
+        Instant now = Instant.now();
+        try {
+            for (SessionTokenRevocation revocation : revocations.findByExpiresAtAfter(now)) {
+                if (revocation.getTokenId() != null) {
+                    revokedTokenIds.put(revocation.getTokenId(), Boolean.TRUE);
+                }
+                if (revocation.getLogin() != null) {
+                    revokedBefore.asMap().merge(revocation.getLogin(), revocation.getRevokedAt(), SessionTokenService::later);
+                }
+            }
+            revocations.deleteExpired(now);
+        } catch (DataAccessException e) {
+            log.warn("Could not read session token revocations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Session tokens are JWTs (three dot-separated parts); GitHub tokens never contain a dot.
+     */
+    public static boolean isSessionToken(String token) {
+        int first = token.indexOf('.');
+        return first > 0 && token.indexOf('.', first + 1) > first;
+    }
+
+    private JwtDecoder createDecoder(JWKSource<SecurityContext> verificationKeys) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, verificationKeys));
+        // Claims are checked by the Spring validators below, as NimbusJwtDecoder's builders do
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+
+        NimbusJwtDecoder nimbusDecoder = new NimbusJwtDecoder(processor);
+        nimbusDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(properties.getIssuer()),
+                revocationValidator()));
+        return nimbusDecoder;
+    }
+
+    private OAuth2TokenValidator<Jwt> revocationValidator() {
+        OAuth2Error revoked = new OAuth2Error("invalid_token", "The session token has been revoked", null);
+        return jwt -> {
+            if (jwt.getId() != null && revokedTokenIds.getIfPresent(jwt.getId()) != null) {
+                return OAuth2TokenValidatorResult.failure(revoked);
+            }
+            Instant cutoff = jwt.getSubject() != null ? revokedBefore.getIfPresent(jwt.getSubject()) : null;
+            if (cutoff != null && jwt.getIssuedAt() != null && !jwt.getIssuedAt().isAfter(cutoff)) {
+                return OAuth2TokenValidatorResult.failure(revoked);
+            }
+            return OAuth2TokenValidatorResult.success();
+        };
+    }
+
+    private List<JWK> initialKeys() {
+        if (properties.getSecretsFile() == null) {
+            return keysFor(properties.getSecrets());
+        }
+        Path file = Path.of(properties.getSecretsFile());
+        try {
+            secretsFileModified = Files.getLastModifiedTime(file);
+            return keysFor(readSecrets(file));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read session token secrets from " + file, e);
+        }
+    }
+
+    // One secret per line; blank lines and lines starting with # are skipped
+    private static List<String> readSecrets(Path file) throws IOException {
+        return Files.readAllLines(file).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+    }
+
+    private static List<JWK> keysFor(List<String> secrets) {
+        List<JWK> configured = new ArrayList<>();
+        for (String secret : secrets == null ? List.<String>of() : secrets) {
+            if (secret.isBlank()) {
+                continue;
+            }
+            byte[] bytes = Base64.getDecoder().decode(secret.trim());
+            if (bytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("Session token secrets must be at least "
+                        + MIN_SECRET_BYTES + " bytes for HS256");
+            }
+            configured.add(octetKey(bytes, keyIdFor(bytes)));
+        }
+        // A key of its own would sign tokens no other instance, or restart, accepts
+        if (configured.isEmpty()) {
+            throw new IllegalStateException("No session token secrets configured; "
+                    + "set app.session-token.secrets or app.session-token.secrets-file");
+        }
+        return List.copyOf(configured);
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static JWK octetKey(byte[] secret, String keyId) {
+        return new OctetSequenceKey.Builder(secret)
+                .keyID(keyId)
+                .algorithm(JWSAlgorithm.HS256)
+                .keyUse(KeyUse.SIGNATURE)
+                .build();
+    }
+
+    // Stable across instances sharing the secret, without revealing it
+    private static String keyIdFor(byte[] secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
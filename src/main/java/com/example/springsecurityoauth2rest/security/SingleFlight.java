@@ -0,0 +1,75 @@
+package com.example.springsecurityoauth2rest.security;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deduplicates concurrent calls for the same key: the first caller runs the call and
+ * every caller that arrives while it is in flight receives the same outcome, whether
+ * that is a value, {@code null} or an exception.
+ *
+ * Only the map bin for the key is touched, so unrelated keys never contend.
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws IOException, InterruptedException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Call<V> call) throws IOException, InterruptedException {
+        CompletableFuture<V> ours = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, ours);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            V value = call.call();
+            ours.complete(value);
+            return value;
+        } catch (IOException | InterruptedException | RuntimeException | Error e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ours);
+        }
+    }
+
+    /**
+     * Number of calls that were answered by another caller's in-flight call.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            // The leading caller was interrupted; that is not our interruption to report
+            throw new IOException("In-flight call was interrupted", cause);
+        }
+    }
+}
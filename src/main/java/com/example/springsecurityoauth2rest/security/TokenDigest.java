@@ -0,0 +1,92 @@
+package com.example.springsecurityoauth2rest.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digest of a bearer token. Used as the key for everything we remember
+ * about a token so the raw credential is never held beyond the request that carried it.
+ */
+public final class TokenDigest {
+
+    public static final int LENGTH = 32;
+
+    private final byte[] bytes;
+    private final int hash;
+
+    private TokenDigest(byte[] bytes) {
+        this.bytes = bytes;
+        // SHA-256 output is uniformly distributed, so the leading bytes make a good hash
+        this.hash = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+    }
+
+    public static TokenDigest of(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return new TokenDigest(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static TokenDigest fromBytes(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Token digest must be " + LENGTH + " bytes");
+        }
+        return new TokenDigest(bytes.clone());
+    }
+
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Reads 8 bytes of the digest as a long, for callers that need several independent hashes.
+     */
+    public long longAt(int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Whether {@code buffer} holds this digest at absolute {@code offset}, compared in
+     * place without copying it.
+     */
+    public boolean matches(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < LENGTH; i += 8) {
+            if (buffer.getLong(offset + i) != longAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toHex() {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TokenDigest)) return false;
+        return Arrays.equals(bytes, ((TokenDigest) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        // Enough to correlate log lines, not enough to be useful to anyone else
+        return "TokenDigest[" + toHex().substring(0, 12) + "]";
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.springsecurityoauth2rest.service;
+
+/**
+ * Thrown when a user cannot be saved because its username or email belongs to another
+ * user. The message is suitable for returning to the client.
+ */
+public class DuplicateUserException extends RuntimeException {
+
+    public static final String USERNAME_TAKEN = "Username is already taken!";
+    public static final String EMAIL_IN_USE = "Email is already in use!";
+
+    public DuplicateUserException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
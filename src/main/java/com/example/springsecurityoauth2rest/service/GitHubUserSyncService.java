@@ -0,0 +1,340 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.UserCacheConfig;
+import com.example.springsecurityoauth2rest.config.UserSyncProperties;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records GitHub logins that authenticate as rows of the {@code users} table, with the
+ * time they were last seen.
+ *
+ * Authentication only queues a sighting in memory; nothing touches the database on the
+ * request path. Sightings of the same login coalesce, and a login is queued at most once
+ * per {@code app.user-sync.min-interval}. The queue is written in JDBC batches on a timer,
+ * or as soon as it holds a full batch: an UPDATE of {@code last_seen_at} for every login,
+ * then an INSERT for those that had no row. Only rows the sync created itself are
+ * updated; a local account that happens to share a GitHub login is left alone, and no
+ * row is added beside it. Existing rows keep their password, role and profile fields. Updated users are evicted from Hibernate's second-level cache once the
+ * batch commits, as the cache does not see JDBC writes.
+ *
+ * If a batch fails, its sightings are queued again and dropped after a few attempts. A
+ * full queue drops new sightings; both are counted rather than slowing requests down.
+ */
+@Service
+public class GitHubUserSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubUserSyncService.class);
+
+    private static final String UPDATE_SQL = "update users set last_seen_at = ? where username = ? and password = ?";
+    // Each row takes a value of the entity's pooled sequence as its id. Hibernate only uses ids
+    // from the block ending at a value it drew itself, so the two never collide. Emails are
+    // unique, so one already used by another row is replaced with the noreply address. A login
+    // already taken by a local account inserts nothing.
+    private static final String INSERT_SQL = "insert into users (id, username, password, email, role, enabled, last_seen_at, version) "
+            + "select %s, ?, ?, "
+            + "case when exists (select 1 from users where email = ?) then ? else ? end, 'USER', true, ?, 0%s "
+            + "where not exists (select 1 from users where username = ?)";
+    // Not a hash any PasswordEncoder produces, so it can never match a password
+    public static final String NO_PASSWORD = "!github";
+    private static final int EMAIL_MAX_LENGTH = 50;
+    private static final String NOREPLY_DOMAIN = "@users.noreply.github.com";
+    private static final int MAX_ATTEMPTS = 3;
+    // Hex digits of the login's hash kept in a shortened noreply address
+    private static final int NOREPLY_HASH_LENGTH = 8;
+
+    private record Sighting(String login, String email, Instant seenAt, int attempts) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactory sessionFactory;
+    private final String insertSql;
+    private final boolean userCacheEnabled;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, Sighting> pending = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> recentlyQueued;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ThreadPoolExecutor flushExecutor;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    public GitHubUserSyncService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 EntityManagerFactory entityManagerFactory, UserSyncProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        // The sequence and SELECT-without-table syntax differ between databases
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.insertSql = INSERT_SQL.formatted(
+                dialect.getSequenceSupport().getSelectSequenceNextValString("users_seq"),
+                dialect.getFromDualForSelectOnly());
+        this.userCacheEnabled = UserCacheConfig.isEnabled(entityManagerFactory);
+        this.enabled = properties.isEnabled();
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.maxPending = properties.getMaxPending();
+        this.recentlyQueued = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getMinInterval())
+                .maximumSize(Math.max(maxPending, 1) * 10L)
+                .build();
+        // One flush at a time; a flush requested while one is queued is redundant
+        this.flushExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), runnable -> {
+                    Thread thread = new Thread(runnable, "github-user-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Queues a sighting of the user. Never blocks and never touches the database.
+     */
+    public void recordSighting(GitHubTokenAuthenticationFilter.GitHubUser user) {
+        if (!enabled) {
+            return;
+        }
+        String login = user.getLogin();
+        if (recentlyQueued.getIfPresent(login) != null) {
+            return;
+        }
+        if (pending.size() >= maxPending && !pending.containsKey(login)) {
+            dropped.increment();
+            return;
+        }
+        recentlyQueued.put(login, Boolean.TRUE);
+        pending.put(login, new Sighting(login, user.getEmail(), Instant.now(), 0));
+        if (pending.size() >= batchSize) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes every queued sighting, a batch at a time.
+     *
+     * @return the number of sightings written
+     */
+    @Scheduled(fixedDelayString = "${app.user-sync.flush-interval:5s}")
+    public int flush() {
+        if (!flushLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int count = 0;
+            List<Sighting> batch;
+            while (!(batch = drain()).isEmpty()) {
+                int batchWritten = write(batch);
+                if (batchWritten == 0) {
+                    // Leave the rest for the next flush rather than failing batch after batch
+                    break;
+                }
+                count += batchWritten;
+            }
+            return count;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public long writtenCount() {
+        return written.sum();
+    }
+
+    public long insertedCount() {
+        return inserted.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long failedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        flushExecutor.shutdownNow();
+        flush();
+    }
+
+    private List<Sighting> drain() {
+        List<Sighting> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<String> logins = pending.keySet().iterator();
+        while (batch.size() < batchSize && logins.hasNext()) {
+            Sighting sighting = pending.remove(logins.next());
+            if (sighting != null) {
+                batch.add(sighting);
+            }
+        }
+        return batch;
+    }
+
+    private int write(List<Sighting> batch) {
+        try {
+            writeRows(batch);
+            return batch.size();
+        } catch (DataAccessException e) {
+            failedBatches.increment();
+            log.warn("Could not write {} GitHub user sightings: {}", batch.size(), e.getMessage());
+            if (batch.size() == 1) {
+                retryLater(batch);
+                return 0;
+            }
+            return writeOneAtATime(batch);
+        }
+    }
+
+    // One bad row fails the whole batch, so write the rows separately and retry only the ones that fail
+    private int writeOneAtATime(List<Sighting> batch) {
+        List<Sighting> failed = new ArrayList<>();
+        for (Sighting sighting : batch) {
+            try {
+                writeRows(List.of(sighting));
+            } catch (DataAccessException e) {
+                log.warn("Could not write GitHub user sighting for {}: {}", sighting.login(), e.getMessage());
+                failed.add(sighting);
+            }
+        }
+        retryLater(failed);
+        return batch.size() - failed.size();
+    }
+
+    private void writeRows(List<Sighting> rows) {
+        List<Long> updatedIds = new ArrayList<>();
+        int insertCount = transactionTemplate.execute(status -> {
+            // One batch, so a single array of per-row counts
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (statement, sighting) -> {
+                statement.setTimestamp(1, Timestamp.from(sighting.seenAt()));
+                statement.setString(2, sighting.login());
+                statement.setString(3, NO_PASSWORD);
+            })[0];
+
+            List<Sighting> missing = new ArrayList<>();
+            List<String> updatedLogins = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                // SUCCESS_NO_INFO means some row was updated, just not how many
+                if (updated[i] == 0) {
+                    missing.add(rows.get(i));
+                } else {
+                    updatedLogins.add(rows.get(i).login());
+                }
+            }
+            updatedIds.addAll(cachedIds(updatedLogins));
+            if (missing.isEmpty()) {
+                return 0;
+            }
+            int[] insertedRows = jdbcTemplate.batchUpdate(insertSql, missing, missing.size(), (statement, sighting) -> {
+                String email = emailFor(sighting);
+                statement.setString(1, sighting.login());
+                statement.setString(2, NO_PASSWORD);
+                statement.setString(3, email);
+                statement.setString(4, noreplyEmail(sighting.login()));
+                statement.setString(5, email);
+                statement.setTimestamp(6, Timestamp.from(sighting.seenAt()));
+                statement.setString(7, sighting.login());
+            })[0];
+            int count = 0;
+            for (int rowCount : insertedRows) {
+                // Zero where a local account holds the login
+                count += rowCount == Statement.SUCCESS_NO_INFO ? 1 : rowCount;
+            }
+            return count;
+        });
+        // After commit, so a concurrent read cannot cache the old row again
+        for (Long id : updatedIds) {
+            sessionFactory.getCache().evictEntityData(User.class, id);
+        }
+        written.add(rows.size());
+        inserted.add(insertCount);
+    }
+
+    // Another instance inserting the same login first lands here too; the retry updates it
+    private void retryLater(List<Sighting> sightings) {
+        for (Sighting sighting : sightings) {
+            if (sighting.attempts() + 1 < MAX_ATTEMPTS) {
+                pending.putIfAbsent(sighting.login(),
+                        new Sighting(sighting.login(), sighting.email(), sighting.seenAt(), sighting.attempts() + 1));
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    // Ids of the logins' rows, to evict; none are needed when there is no cache to evict from
+    private List<Long> cachedIds(List<String> logins) {
+        if (logins.isEmpty() || !userCacheEnabled) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(logins.size(), "?"));
+        return jdbcTemplate.queryForList("select id from users where username in (" + placeholders + ")",
+                Long.class, logins.toArray());
+    }
+
+    // The column is required and short; fall back to a noreply address, shortening very long logins
+    private static String emailFor(Sighting sighting) {
+        String email = sighting.email();
+        if (email != null && email.length() <= EMAIL_MAX_LENGTH) {
+            return email;
+        }
+        return noreplyEmail(sighting.login());
+    }
+
+    // A login too long to fit is cut short and ends in a hash of the whole of it, so two
+    // logins sharing a prefix still get different addresses
+    static String noreplyEmail(String login) {
+        int room = EMAIL_MAX_LENGTH - NOREPLY_DOMAIN.length();
+        if (login.length() <= room) {
+            return login + NOREPLY_DOMAIN;
+        }
+        String hash = HexFormat.of().formatHex(sha256(login)).substring(0, NOREPLY_HASH_LENGTH);
+        return login.substring(0, room - NOREPLY_HASH_LENGTH - 1) + "-" + hash + NOREPLY_DOMAIN;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
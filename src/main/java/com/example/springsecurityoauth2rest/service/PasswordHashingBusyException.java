@@ -0,0 +1,14 @@
+package com.example.springsecurityoauth2rest.service;
+
+/**
+ * Thrown when a password cannot be hashed or checked because every hashing thread is
+ * busy and the queue in front of them is full. The client should retry shortly.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public static final String MESSAGE = "Too many password operations in progress, retry shortly";
+
+    public PasswordHashingBusyException(Throwable cause) {
+        super(MESSAGE, cause);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Runs the {@link PasswordEncoder}'s hashing on a fixed pool of threads, one per core by
+ * default, instead of on the request threads that ask for it.
+ *
+ * A hash is deliberately slow CPU work; run on request threads, a burst of user creations
+ * would occupy every one of them and leave none for cheap requests. Here at most
+ * {@code threads} hashes run at once and a bounded number wait; beyond that the caller
+ * gets a {@link PasswordHashingBusyException} straight away rather than queueing without
+ * limit. The calling thread still waits for its own hash.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, PasswordHashingProperties properties) {
+        this.passwordEncoder = passwordEncoder;
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Picks the largest bcrypt strength, within the bounds, whose hash takes no longer
+     * than {@code targetLatency}. Only the minimum is timed: each step up doubles the work.
+     */
+    public static int calibrateStrength(Duration targetLatency, int minStrength, int maxStrength,
+                                        IntToLongFunction nanosToHash) {
+        long target = targetLatency.toNanos();
+        int strength = minStrength;
+        long nanos = nanosToHash.applyAsLong(minStrength);
+        while (strength < maxStrength && nanos * 2 <= target) {
+            strength++;
+            nanos *= 2;
+        }
+        return strength;
+    }
+
+    /**
+     * @throws PasswordHashingBusyException if the hashing threads are saturated
+     */
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @throws PasswordHashingBusyException if the hashing threads are saturated
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public int threadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    public int queuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public long completedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.dto.UserSummary;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the whole {@code users} table to an output stream as NDJSON or CSV.
+ *
+ * Rows come from a forward-only database cursor as {@link UserSummary} projections and
+ * are written as they arrive, so memory use does not depend on the size of the table:
+ * no entity is ever managed, and at most one fetch of rows is held at a time. Passwords
+ * are never read.
+ */
+@Service
+public class UserExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public record ExportResult(Format format, long rows, Duration elapsed, Instant finishedAt) {
+
+        public long rowsPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return rows * 1000 / millis;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UserExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,username,email,firstName,lastName,role,enabled,lastSeenAt\r\n";
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    // Flushing after every row would defeat the buffering
+    private final ObjectWriter rowWriter;
+    private volatile ExportResult lastExport;
+
+    public UserExportService(UserRepository userRepository, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(UserSummary.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes every user to {@code out}, gzip-compressed if asked. Does not close {@code out}.
+     */
+    @Transactional(readOnly = true)
+    public ExportResult export(Format format, boolean gzip, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long rows;
+        OutputStream target = gzip ? new GZIPOutputStream(nonClosing(out), BUFFER_SIZE) : nonClosing(out);
+        try (Stream<UserSummary> users = userRepository.streamAllSummaries();
+             OutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE)) {
+            rows = format == Format.NDJSON ? writeNdjson(users.iterator(), buffered) : writeCsv(users.iterator(), buffered);
+        }
+
+        ExportResult result = new ExportResult(format, rows, Duration.ofNanos(System.nanoTime() - started), Instant.now());
+        lastExport = result;
+        log.info("Exported {} users as {} in {} ms ({} rows/s)", rows, format,
+                result.elapsed().toMillis(), result.rowsPerSecond());
+        return result;
+    }
+
+    public ExportResult getLastExport() {
+        return lastExport;
+    }
+
+    private long writeNdjson(Iterator<UserSummary> users, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            while (users.hasNext()) {
+                rowWriter.writeValue(generator, users.next());
+                generator.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(Iterator<UserSummary> users, OutputStream out) throws IOException {
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        while (users.hasNext()) {
+            UserSummary user = users.next();
+            writer.write(String.valueOf(user.id()));
+            writer.write(',');
+            writeCsvField(writer, user.username());
+            writer.write(',');
+            writeCsvField(writer, user.email());
+            writer.write(',');
+            writeCsvField(writer, user.firstName());
+            writer.write(',');
+            writeCsvField(writer, user.lastName());
+            writer.write(',');
+            writeCsvField(writer, user.role());
+            writer.write(',');
+            writer.write(String.valueOf(user.enabled()));
+            writer.write(',');
+            writeCsvField(writer, user.lastSeenAt() != null ? user.lastSeenAt().toString() : null);
+            writer.write("\r\n");
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks; null is an empty field
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // Closing the export's own streams must flush and finish them without closing the caller's
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.dto.UserImportRow;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from a stream of rows, reporting the outcome of every row.
+ *
+ * Rows are read and imported a batch at a time; of the input, only the report is kept.
+ * Each batch is validated, checked for usernames and emails repeated within the import
+ * so far or already taken (one query each for the whole batch), then inserted in one
+ * transaction. The entity's pooled id sequence lets Hibernate send those inserts as
+ * JDBC batches rather than a statement per row. A batch the database rejects fails on
+ * its own; batches before it stay committed. Passwords are hashed by the shared
+ * {@link PasswordHashingService}, so a row that finds it saturated fails on its own too.
+ */
+@Service
+public class UserImportService {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE_USERNAME,
+        DUPLICATE_EMAIL,
+        INVALID,
+        FAILED
+    }
+
+    /**
+     * Outcome of one input row; {@code line} counts rows from 1.
+     */
+    public record RowResult(int line, String username, Status status, Long id, String message) {
+    }
+
+    public record ImportReport(List<RowResult> rows, Duration elapsed) {
+
+        public long count(Status status) {
+            return rows.stream().filter(row -> row.status() == status).count();
+        }
+
+        public long rowsPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return rows.size() * 1000L / millis;
+        }
+    }
+
+    private record Candidate(int line, UserImportRow row, User user) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}");
+    private static final Set<String> ROLES = Set.of("USER", "ADMIN");
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final Validator validator;
+    private final int batchSize;
+
+    public UserImportService(UserRepository userRepository, EntityManager entityManager,
+                             TransactionTemplate transactionTemplate, PasswordHashingService passwordHashingService,
+                             Validator validator, @Value("${app.users.import.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.validator = validator;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports every row {@code source} yields. If reading a row fails (malformed input),
+     * the rows read before it are still imported and the failure is reported on its line;
+     * nothing after it is read.
+     */
+    public ImportReport importUsers(Iterator<UserImportRow> source) {
+        long started = System.nanoTime();
+        List<RowResult> results = new ArrayList<>();
+        // Across batches, so a repeat is caught even after the first row was committed
+        Set<String> importedUsernames = new HashSet<>();
+        Set<String> importedEmails = new HashSet<>();
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        int line = 0;
+        while (true) {
+            UserImportRow row;
+            try {
+                if (!source.hasNext()) {
+                    break;
+                }
+                line++;
+                row = source.next();
+            } catch (RuntimeException e) {
+                results.addAll(importBatch(batch, importedUsernames, importedEmails));
+                results.add(new RowResult(line, null, Status.INVALID, null, "Unreadable row: " + e.getMessage()));
+                batch.clear();
+                break;
+            }
+            batch.add(new Candidate(line, row, null));
+            if (batch.size() == batchSize) {
+                results.addAll(importBatch(batch, importedUsernames, importedEmails));
+                batch.clear();
+            }
+        }
+        results.addAll(importBatch(batch, importedUsernames, importedEmails));
+
+        ImportReport report = new ImportReport(List.copyOf(results), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Imported {} of {} users in {} ms ({} rows/s)", report.count(Status.CREATED), results.size(),
+                report.elapsed().toMillis(), report.rowsPerSecond());
+        return report;
+    }
+
+    private List<RowResult> importBatch(List<Candidate> batch, Set<String> importedUsernames,
+                                        Set<String> importedEmails) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        RowResult[] results = new RowResult[batch.size()];
+        // In line order, which is the order ids are assigned in
+        Map<Integer, Candidate> accepted = new LinkedHashMap<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Candidate candidate = batch.get(i);
+            UserImportRow row = candidate.row();
+            String problem = validate(row);
+            User user = null;
+            if (problem == null) {
+                user = toUser(row);
+                problem = violations(user);
+            }
+            if (problem != null) {
+                results[i] = result(candidate, Status.INVALID, null, problem);
+            } else if (importedUsernames.contains(row.username()) || !usernames.add(row.username())) {
+                results[i] = result(candidate, Status.DUPLICATE_USERNAME, null, "Username appears earlier in the import");
+            } else if (importedEmails.contains(row.email()) || !emails.add(row.email())) {
+                usernames.remove(row.username());
+                results[i] = result(candidate, Status.DUPLICATE_EMAIL, null, "Email appears earlier in the import");
+            } else {
+                accepted.put(i, new Candidate(candidate.line(), row, user));
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+            Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+            accepted.entrySet().removeIf(entry -> {
+                Candidate candidate = entry.getValue();
+                if (takenUsernames.contains(candidate.row().username())) {
+                    results[entry.getKey()] = result(candidate, Status.DUPLICATE_USERNAME, null, "Username is already taken");
+                    return true;
+                }
+                if (takenEmails.contains(candidate.row().email())) {
+                    results[entry.getKey()] = result(candidate, Status.DUPLICATE_EMAIL, null, "Email is already in use");
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        if (!accepted.isEmpty()) {
+            // Hashed outside the transaction, so a slow encoder does not hold a connection
+            accepted.entrySet().removeIf(entry -> {
+                Candidate candidate = entry.getValue();
+                if (candidate.row().passwordHash() != null) {
+                    return false;
+                }
+                try {
+                    candidate.user().setPassword(passwordHashingService.encode(candidate.row().password()));
+                    return false;
+                } catch (PasswordHashingBusyException e) {
+                    // Same limit as creating one user; the row can be imported again later
+                    results[entry.getKey()] = result(candidate, Status.FAILED, null, PasswordHashingBusyException.MESSAGE);
+                    return true;
+                }
+            });
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Freshly imported users are not worth evicting ones being read from the cache
+                    entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                    for (Candidate candidate : accepted.values()) {
+                        entityManager.persist(candidate.user());
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                for (Map.Entry<Integer, Candidate> entry : accepted.entrySet()) {
+                    Candidate candidate = entry.getValue();
+                    results[entry.getKey()] = result(candidate, Status.CREATED, candidate.user().getId(), null);
+                    importedUsernames.add(candidate.row().username());
+                    importedEmails.add(candidate.row().email());
+                }
+            } catch (DataAccessException e) {
+                // Most likely a concurrent insert of the same username; the rest of the import goes on
+                log.warn("Could not insert a batch of {} imported users: {}", accepted.size(), e.getMessage());
+                for (Map.Entry<Integer, Candidate> entry : accepted.entrySet()) {
+                    results[entry.getKey()] = result(entry.getValue(), Status.FAILED, null,
+                            "Batch rejected by the database");
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    // Checks the entity's own constraints cannot express
+    private static String validate(UserImportRow row) {
+        if (row == null) {
+            return "Empty row";
+        }
+        if (row.passwordHash() != null) {
+            if (row.password() != null) {
+                return "Give password or passwordHash, not both";
+            }
+            if (!BCRYPT_HASH.matcher(row.passwordHash()).matches()) {
+                return "passwordHash must be a bcrypt hash";
+            }
+        }
+        if (row.role() != null && !ROLES.contains(row.role().toUpperCase(Locale.ROOT))) {
+            return "role must be one of " + ROLES;
+        }
+        return null;
+    }
+
+    private static User toUser(UserImportRow row) {
+        User user = new User(row.username(), row.passwordHash() != null ? row.passwordHash() : row.password(),
+                row.email(), row.firstName(), row.lastName());
+        if (row.role() != null) {
+            user.setRole(row.role().toUpperCase(Locale.ROOT));
+        }
+        return user;
+    }
+
+    // The raw password is validated as given, as it is when creating a single user
+    private String violations(User user) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static RowResult result(Candidate candidate, Status status, Long id, String message) {
+        String username = candidate.row() != null ? candidate.row().username() : null;
+        return new RowResult(candidate.line(), username, status, id, message);
+    }
+}
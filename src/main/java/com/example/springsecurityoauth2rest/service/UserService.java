@@ -1,13 +1,27 @@
 package com.example.springsecurityoauth2rest.service;
 
+import com.example.springsecurityoauth2rest.dto.UserPage;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.dto.UserSummary;
 import com.example.springsecurityoauth2rest.entity.User;
 import com.example.springsecurityoauth2rest.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
@@ -16,35 +30,144 @@ public class UserService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Value("${app.users.page-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${app.users.max-page-size:500}")
+    private int maxPageSize = 500;
+
+    public static final int MAX_BULK_DELETE = 1000;
+
+    private static final String CURSOR_PREFIX = "id:";
     
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
     
+    /**
+     * One page of users in id order, starting after {@code cursor} (null for the first page).
+     * Rows are read as {@link UserSummary} projections, so nothing enters the persistence
+     * context and the password column is never selected.
+     *
+     * @throws IllegalArgumentException if the cursor was not produced by this method
+     */
+    @Transactional(readOnly = true)
+    public UserPage listUsers(String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        long afterId = cursor == null || cursor.isEmpty() ? 0 : decodeCursor(cursor);
+
+        // One extra row tells whether there is a next page without a count query
+        List<UserSummary> rows = userRepository.findSummariesAfter(afterId, Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new UserPage(rows, null);
+        }
+        List<UserSummary> page = rows.subList(0, pageSize);
+        return new UserPage(List.copyOf(page), encodeCursor(page.get(pageSize - 1).id()));
+    }
+
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
     
+    // By id and by username are served from the second-level cache when the user is in it
     public Optional<User> getUserByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userRepository.findByNaturalUsername(username);
     }
     
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
     
+    /**
+     * Inserts the user with its password encoded. Uniqueness is left to the database's
+     * unique constraints, so this is a single insert and two concurrent creates of the
+     * same username cannot both succeed.
+     *
+     * @throws DuplicateUserException if the username or email is already in use
+     * @throws PasswordHashingBusyException if too many passwords are being hashed already
+     */
     public User createUser(User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
+        try {
+            // Flushed here so a violation surfaces from this call, not at some later commit
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicate(e);
+        }
     }
     
     public User updateUser(User user) {
         return userRepository.save(user);
     }
     
-    public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+    /**
+     * Applies the non-null fields of {@code patch} to the user, provided it is still at
+     * {@code expectedVersion}. Only columns whose value actually changes are written, and
+     * a patch that changes nothing writes nothing.
+     *
+     * @return the updated user, or empty if there is no user with that id
+     * @throws ObjectOptimisticLockingFailureException if the user was modified since that
+     *         version was read, including by a concurrent update that commits first
+     * @throws DuplicateUserException if the new email is already in use
+     */
+    @Transactional
+    public Optional<User> patchUser(Long id, UserPatch patch, long expectedVersion) {
+        Optional<User> found = userRepository.findById(id);
+        if (found.isEmpty()) {
+            return found;
+        }
+        User user = found.get();
+        if (!Long.valueOf(expectedVersion).equals(user.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(User.class, id);
+        }
+        if (patch.firstName() != null) {
+            user.setFirstName(patch.firstName());
+        }
+        if (patch.lastName() != null) {
+            user.setLastName(patch.lastName());
+        }
+        if (patch.email() != null) {
+            user.setEmail(patch.email());
+        }
+        if (patch.enabled() != null) {
+            user.setEnabled(patch.enabled());
+        }
+        try {
+            // Surfaces conflicts here, and leaves the new version on the returned user
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicate(e);
+        }
+        return Optional.of(user);
+    }
+
+    /**
+     * Deletes the user in one statement, without loading it first.
+     *
+     * @return the number of users deleted: 1, or 0 if there was no such user
+     */
+    public int deleteUser(Long id) {
+        return userRepository.deleteUserById(id);
+    }
+
+    /**
+     * Deletes every listed user in one statement. Ids with no user are ignored.
+     *
+     * @return the number of users deleted
+     * @throws IllegalArgumentException if more than {@value #MAX_BULK_DELETE} distinct ids are given
+     */
+    public int deleteUsers(Collection<Long> ids) {
+        Set<Long> distinct = new HashSet<>(ids);
+        if (distinct.isEmpty()) {
+            return 0;
+        }
+        // Keeps the IN list within what every database accepts
+        if (distinct.size() > MAX_BULK_DELETE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_DELETE + " ids can be deleted at once");
+        }
+        return userRepository.deleteUsersByIds(distinct);
     }
     
     public boolean existsByUsername(String username) {
@@ -54,4 +177,41 @@ public class UserService {
     public boolean existsByEmail(String email) {
         return userRepository.existsByEmail(email);
     }
+
+    // Names the duplicate from the violated constraint; anything else is rethrown as is
+    static RuntimeException translateDuplicate(DataIntegrityViolationException e) {
+        String constraint = null;
+        for (Throwable cause = e; cause != null && constraint == null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                constraint = violation.getConstraintName();
+            }
+        }
+        // Some drivers report no constraint name; the message still contains it
+        String detail = (constraint + " " + e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        if (detail.contains(User.USERNAME_CONSTRAINT)) {
+            return new DuplicateUserException(DuplicateUserException.USERNAME_TAKEN, e);
+        }
+        if (detail.contains(User.EMAIL_CONSTRAINT)) {
+            return new DuplicateUserException(DuplicateUserException.EMAIL_IN_USE, e);
+        }
+        return e;
+    }
+
+    // Opaque to clients so the paging key can change without breaking them
+    static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below; NumberFormatException is one too
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
 }
@@ -0,0 +1,67 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the active-principal tracker adds to each authenticated request, for a working set
+ * of logins that fits in the tracker.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     "-Dexec.args=-cp %classpath com.example.springsecurityoauth2rest.benchmark.ActivePrincipalTrackerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivePrincipalTrackerBenchmark {
+
+    private ActivePrincipalTracker tracker;
+    private String[] logins;
+
+    @Setup
+    public void setUp() {
+        tracker = new ActivePrincipalTracker(10_000);
+        logins = new String[1_000];
+        for (int i = 0; i < logins.length; i++) {
+            logins[i] = "user-" + i;
+            tracker.record(logins[i]);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        tracker.record(logins[ThreadLocalRandom.current().nextInt(logins.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        tracker.record(logins[ThreadLocalRandom.current().nextInt(logins.length)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivePrincipalTrackerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.github.GitHubUserDecoder;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming {@link GitHubUserDecoder} against the previous String + {@code readTree} path,
+ * on a realistic ~1.5 KB {@code /user} payload.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     "-Dexec.args=-cp %classpath com.example.springsecurityoauth2rest.benchmark.GitHubUserDecoderBenchmark"
+ *
+ * The gc profiler reports allocation per operation alongside throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitHubUserDecoderBenchmark {
+
+    private static final String PAYLOAD = """
+            {"login":"octocat","id":583231,"node_id":"MDQ6VXNlcjU4MzIzMQ==",
+            "avatar_url":"https://avatars.githubusercontent.com/u/583231?v=4","gravatar_id":"",
+            "url":"https://api.github.com/users/octocat","html_url":"https://github.com/octocat",
+            "followers_url":"https://api.github.com/users/octocat/followers",
+            "following_url":"https://api.github.com/users/octocat/following{/other_user}",
+            "gists_url":"https://api.github.com/users/octocat/gists{/gist_id}",
+            "starred_url":"https://api.github.com/users/octocat/starred{/owner}{/repo}",
+            "subscriptions_url":"https://api.github.com/users/octocat/subscriptions",
+            "organizations_url":"https://api.github.com/users/octocat/orgs",
+            "repos_url":"https://api.github.com/users/octocat/repos",
+            "events_url":"https://api.github.com/users/octocat/events{/privacy}",
+            "received_events_url":"https://api.github.com/users/octocat/received_events",
+            "type":"User","user_view_type":"public","site_admin":false,"name":"The Octocat",
+            "company":"@github","blog":"https://github.blog","location":"San Francisco",
+            "email":null,"hireable":null,"bio":null,"twitter_username":null,"notification_email":null,
+            "public_repos":8,"public_gists":8,"followers":17000,"following":9,
+            "created_at":"2011-01-25T18:44:36Z","updated_at":"2025-01-22T12:19:52Z",
+            "private_gists":0,"total_private_repos":0,"owned_private_repos":0,"disk_usage":0,
+            "collaborators":0,"two_factor_authentication":true,
+            "plan":{"name":"free","space":976562499,"collaborators":0,"private_repos":10000}}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public GitHubTokenAuthenticationFilter.GitHubUser streaming() throws IOException {
+        return GitHubUserDecoder.decode(bytes);
+    }
+
+    @Benchmark
+    public GitHubTokenAuthenticationFilter.GitHubUser tree() throws IOException {
+        // Equivalent to BodyHandlers.ofString() followed by readTree, as before
+        String body = new String(bytes, StandardCharsets.UTF_8);
+        JsonNode jsonNode = objectMapper.readTree(body);
+        return new GitHubTokenAuthenticationFilter.GitHubUser(
+            jsonNode.get("login").asText(),
+            jsonNode.has("name") && !jsonNode.get("name").isNull() ? jsonNode.get("name").asText() : null,
+            jsonNode.has("email") && !jsonNode.get("email").isNull() ? jsonNode.get("email").asText() : null,
+            jsonNode.has("avatar_url") ? jsonNode.get("avatar_url").asText() : null
+        );
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GitHubUserDecoderBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.service.PasswordHashingService;
+import com.example.springsecurityoauth2rest.service.UserImportService;
+import com.example.springsecurityoauth2rest.service.UserService;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * The persistence layer and user services alone, on an in-memory H2 database, for
+ * benchmarks of database work. Passwords are not hashed, so hashing does not drown it out.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = User.class)
+@EnableJpaRepositories(basePackageClasses = UserRepository.class)
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+@Import({UserService.class, UserImportService.class, PasswordHashingService.class})
+class JpaBenchmarkApplication {
+
+    @Bean
+    @SuppressWarnings("deprecation")
+    PasswordEncoder passwordEncoder() {
+        return NoOpPasswordEncoder.getInstance();
+    }
+
+    static ConfigurableApplicationContext start(String database, String... properties) {
+        return new SpringApplicationBuilder(JpaBenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "spring.datasource.url=jdbc:h2:mem:" + database,
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.springsecurityoauth2rest=WARN",
+                        // Rejected duplicates are part of some benchmarks; logging each would dominate them
+                        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF")
+                .properties(properties)
+                .run();
+    }
+}
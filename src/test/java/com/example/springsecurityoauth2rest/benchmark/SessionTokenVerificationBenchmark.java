@@ -0,0 +1,86 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.config.SessionTokenProperties;
+import com.example.springsecurityoauth2rest.repository.SessionTokenRevocationRepository;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import com.example.springsecurityoauth2rest.security.SessionTokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Throughput of verifying a session token: signature check, claim validation and the
+ * revocation lookup, as done by the resource server on every request.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     "-Dexec.args=-cp %classpath com.example.springsecurityoauth2rest.benchmark.SessionTokenVerificationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionTokenVerificationBenchmark {
+
+    private JwtDecoder decoder;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // A rotated key ring, so verification has to select among several keys
+        SessionTokenProperties properties = new SessionTokenProperties();
+        properties.setSecrets(List.of(secret(1), secret(2), secret(3)));
+        SessionTokenService service = new SessionTokenService(properties, mock(SessionTokenRevocationRepository.class));
+        decoder = service.decoder();
+        token = service.mint(
+                new GitHubTokenAuthenticationFilter.GitHubUser("octocat", "The Octocat", null,
+                        "https://avatars.githubusercontent.com/u/583231?v=4"),
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))).value();
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Jwt verifyContended() {
+        return decoder.decode(token);
+    }
+
+    private static String secret(int fill) {
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, (byte) fill);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SessionTokenVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.service.DuplicateUserException;
+import com.example.springsecurityoauth2rest.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of creating one user: existence checks for username and email before the
+ * insert, as POST /api/users used to do, against the single insert that leaves
+ * uniqueness to the database. Also the rejected-duplicate case of each.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     "-Dexec.args=-cp %classpath com.example.springsecurityoauth2rest.benchmark.UserCreationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCreationBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        context = JpaBenchmarkApplication.start("creation-benchmark");
+        userService = context.getBean(UserService.class);
+        userService.createUser(new User("octocat", "password", "octocat@example.com", null, null));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User preChecked() {
+        return createPreChecked(nextUser());
+    }
+
+    @Benchmark
+    public User singleInsert() {
+        return userService.createUser(nextUser());
+    }
+
+    @Benchmark
+    public User duplicatePreChecked() {
+        return createPreChecked(new User("octocat", "password", "other@example.com", null, null));
+    }
+
+    @Benchmark
+    public String duplicateSingleInsert() {
+        try {
+            userService.createUser(new User("octocat", "password", "other@example.com", null, null));
+            return null;
+        } catch (DuplicateUserException e) {
+            return e.getMessage();
+        }
+    }
+
+    private User createPreChecked(User user) {
+        if (userService.existsByUsername(user.getUsername()) || userService.existsByEmail(user.getEmail())) {
+            return null;
+        }
+        return userService.createUser(user);
+    }
+
+    private User nextUser() {
+        long id = next++;
+        return new User("user" + id, "password", "user" + id + "@example.com", null, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserCreationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
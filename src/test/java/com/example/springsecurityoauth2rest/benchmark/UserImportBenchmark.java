@@ -0,0 +1,106 @@
+package com.example.springsecurityoauth2rest.benchmark;
+
+import com.example.springsecurityoauth2rest.dto.UserImportRow;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.service.UserImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import against the per-row path POST /api/users takes (two existence queries and
+ * a save, each in its own transaction), on the in-memory H2 database. Passwords are not
+ * hashed, so only the database work is compared.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     "-Dexec.args=-cp %classpath com.example.springsecurityoauth2rest.benchmark.UserImportBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserImportBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserImportService importService;
+    private PasswordEncoder passwordEncoder;
+    private JdbcTemplate jdbcTemplate;
+    private List<UserImportRow> input;
+
+    @Setup
+    public void setUp() {
+        context = JpaBenchmarkApplication.start("import-benchmark");
+        userRepository = context.getBean(UserRepository.class);
+        importService = context.getBean(UserImportService.class);
+        passwordEncoder = context.getBean(PasswordEncoder.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        input = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            input.add(new UserImportRow("user" + i, "user" + i + "@example.com", "password", null, "User", null, null));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() {
+        jdbcTemplate.update("delete from users");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int perRow() {
+        int created = 0;
+        for (UserImportRow row : input) {
+            if (userRepository.existsByUsername(row.username()) || userRepository.existsByEmail(row.email())) {
+                continue;
+            }
+            User user = new User(row.username(), passwordEncoder.encode(row.password()), row.email(),
+                    row.firstName(), row.lastName());
+            userRepository.save(user);
+            created++;
+        }
+        return created;
+    }
+
+    @Benchmark
+    public UserImportService.ImportReport bulk() {
+        return importService.importUsers(input.iterator());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserImportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
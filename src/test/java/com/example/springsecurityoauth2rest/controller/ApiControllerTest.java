@@ -1,9 +1,11 @@
 package com.example.springsecurityoauth2rest.controller;
 
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -13,11 +15,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(ApiController.class)
 @AutoConfigureMockMvc(addFilters = false) // Disable security filters for unit testing
+@Import(ActivePrincipalTracker.class)
 class ApiControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ActivePrincipalTracker activePrincipalTracker;
+
     @Test
     void testPublicEndpoint() throws Exception {
         mockMvc.perform(get("/api/public/health"))
@@ -39,10 +45,18 @@ class ApiControllerTest {
     @Test
     @WithMockUser(username = "admin")
     void testAdminEndpoint() throws Exception {
+        activePrincipalTracker.record("octocat");
+        activePrincipalTracker.record("octocat");
+        activePrincipalTracker.record("hubot");
+
         mockMvc.perform(get("/api/admin/users"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.users").isArray())
-                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.users[0].login").value("octocat"))
+                .andExpect(jsonPath("$.users[0].requests").value(2))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.active.1m").value(2))
+                .andExpect(jsonPath("$.distinctApprox.60m").value(2))
                 .andExpect(jsonPath("$.message").value("Admin endpoint accessed successfully"))
                 .andExpect(jsonPath("$.accessedBy").value("admin"))
                 .andExpect(jsonPath("$.timestamp").exists());
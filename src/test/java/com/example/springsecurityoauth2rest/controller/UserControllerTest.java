@@ -1,6 +1,12 @@
 package com.example.springsecurityoauth2rest.controller;
 
+import com.example.springsecurityoauth2rest.config.SecurityConfig;
+import com.example.springsecurityoauth2rest.dto.UserPage;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.dto.UserSummary;
 import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.service.DuplicateUserException;
+import com.example.springsecurityoauth2rest.service.PasswordHashingBusyException;
 import com.example.springsecurityoauth2rest.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -8,14 +14,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.CorsFilter;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,23 +44,38 @@ class UserControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
     @MockitoBean
     private UserService userService;
 
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void testGetAllUsers() throws Exception {
-        User user1 = new User("user1", "password1", "user1@example.com", "User", "One");
-        User user2 = new User("user2", "password2", "user2@example.com", "User", "Two");
-        
-        when(userService.getAllUsers()).thenReturn(Arrays.asList(user1, user2));
+        UserSummary user1 = new UserSummary(1L, "user1", "user1@example.com", "User", "One", "USER", true, null);
+        UserSummary user2 = new UserSummary(2L, "user2", "user2@example.com", "User", "Two", "USER", true, null);
+
+        when(userService.listUsers(null, 2)).thenReturn(new UserPage(Arrays.asList(user1, user2), "next"));
 
-        mockMvc.perform(get("/api/users"))
+        mockMvc.perform(get("/api/users").param("size", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].username").value("user1"))
-                .andExpect(jsonPath("$[1].username").value("user2"));
+                .andExpect(jsonPath("$.users").isArray())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users[0].username").value("user1"))
+                .andExpect(jsonPath("$.users[1].username").value("user2"))
+                .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testGetAllUsersWithInvalidCursor() throws Exception {
+        when(userService.listUsers("bogus", null)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/users").param("cursor", "bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
     }
 
     @Test
@@ -71,8 +100,6 @@ class UserControllerTest {
         User createdUser = new User("newuser", "password", "new@example.com", "New", "User");
         createdUser.setId(1L);
 
-        when(userService.existsByUsername("newuser")).thenReturn(false);
-        when(userService.existsByEmail("new@example.com")).thenReturn(false);
         when(userService.createUser(any(User.class))).thenReturn(createdUser);
 
         mockMvc.perform(post("/api/users")
@@ -108,16 +135,24 @@ class UserControllerTest {
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void testDeleteUser() throws Exception {
-        User user = new User("testuser", "password", "test@example.com", "Test", "User");
-        user.setId(1L);
-        
-        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+        when(userService.deleteUser(1L)).thenReturn(1);
 
         mockMvc.perform(delete("/api/users/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("User deleted successfully"));
     }
 
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testDeleteUsers() throws Exception {
+        when(userService.deleteUsers(List.of(1L, 2L, 3L))).thenReturn(2);
+
+        mockMvc.perform(delete("/api/users").param("ids", "1,2,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
     @Test
     void testGetUserByIdNotFound() throws Exception {
         when(userService.getUserById(999L)).thenReturn(Optional.empty());
@@ -131,7 +166,8 @@ class UserControllerTest {
     void testCreateUserWithDuplicateUsername() throws Exception {
         User userToCreate = new User("existinguser", "password", "new@example.com", "New", "User");
 
-        when(userService.existsByUsername("existinguser")).thenReturn(true);
+        when(userService.createUser(any(User.class)))
+                .thenThrow(new DuplicateUserException(DuplicateUserException.USERNAME_TAKEN, null));
 
         mockMvc.perform(post("/api/users")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -145,8 +181,8 @@ class UserControllerTest {
     void testCreateUserWithDuplicateEmail() throws Exception {
         User userToCreate = new User("newuser", "password", "existing@example.com", "New", "User");
 
-        when(userService.existsByUsername("newuser")).thenReturn(false);
-        when(userService.existsByEmail("existing@example.com")).thenReturn(true);
+        when(userService.createUser(any(User.class)))
+                .thenThrow(new DuplicateUserException(DuplicateUserException.EMAIL_IN_USE, null));
 
         mockMvc.perform(post("/api/users")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -155,6 +191,21 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.error").value("Email is already in use!"));
     }
 
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testCreateUserWhileHashingIsSaturated() throws Exception {
+        User userToCreate = new User("newuser", "password", "new@example.com", "New", "User");
+
+        when(userService.createUser(any(User.class))).thenThrow(new PasswordHashingBusyException(null));
+
+        mockMvc.perform(post("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userToCreate)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value(PasswordHashingBusyException.MESSAGE));
+    }
+
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void testDeleteUserNotFound() throws Exception {
@@ -176,4 +227,74 @@ class UserControllerTest {
                 .content(objectMapper.writeValueAsString(updateRequest)))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testPatchUser() throws Exception {
+        User patchedUser = new User("testuser", "password", "test@example.com", "Patched", "User");
+        patchedUser.setId(1L);
+        patchedUser.setVersion(4L);
+        UserPatch patch = new UserPatch("Patched", null, null, null, null);
+
+        when(userService.patchUser(1L, patch, 3L)).thenReturn(Optional.of(patchedUser));
+
+        mockMvc.perform(patch("/api/users/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.user.firstName").value("Patched"))
+                .andExpect(jsonPath("$.user.password").doesNotExist());
+    }
+
+    @Test
+    void testPatchPreflightIsAllowedAndETagIsExposed() throws Exception {
+        MockMvc cors = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilters(new CorsFilter(new SecurityConfig().corsConfigurationSource()))
+                .build();
+
+        cors.perform(options("/api/users/1")
+                .header(HttpHeaders.ORIGIN, "https://app.example.com")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "PATCH")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "If-Match, Content-Type"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "https://app.example.com"))
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, containsString("PATCH")));
+
+        User user = new User("testuser", "password", "test@example.com", "Test", "User");
+        user.setId(1L);
+        user.setVersion(4L);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        cors.perform(get("/api/users/1").header(HttpHeaders.ORIGIN, "https://app.example.com"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, containsString("ETag")));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testPatchUserWithStaleVersion() throws Exception {
+        when(userService.patchUser(any(), any(), anyLong()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 1L));
+
+        mockMvc.perform(patch("/api/users/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Patched\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Patched\",\"version\":3}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void testPatchUserWithoutVersion() throws Exception {
+        mockMvc.perform(patch("/api/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Patched\"}"))
+                .andExpect(status().isPreconditionRequired());
+    }
 }
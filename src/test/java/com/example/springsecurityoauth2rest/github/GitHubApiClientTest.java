@@ -0,0 +1,353 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import com.example.springsecurityoauth2rest.security.TokenDigest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubApiClientTest {
+
+    private static final String USER_JSON = """
+            {"login":"octocat","id":1,"node_id":"MDQ6VXNlcjE=","avatar_url":"https://avatars.example/u/1",
+             "type":"User","site_admin":false,"name":"The Octocat","company":"@github","blog":"",
+             "location":"San Francisco","email":null,"hireable":null,"bio":null,"public_repos":8,
+             "plan":{"name":"free","space":976562499,"private_repos":10000}}""";
+
+    private static final String MEMBERSHIP_JSON = """
+            {"data":{"viewer":{"organizations":{"nodes":[{"login":"Acme"},{"login":"octo-org"}]}},
+             "o0":{"teams":{"nodes":[{"slug":"Platform"},{"slug":"security"}]}},
+             "o1":null},
+             "errors":[{"type":"NOT_FOUND","path":["o1"],"message":"Could not resolve to an Organization"}]}""";
+
+    private static final String EMAILS_JSON = """
+            [{"email":"old@example.com","primary":false,"verified":true,"visibility":null},
+             {"email":"octocat@example.com","primary":true,"verified":true,"visibility":"private"}]""";
+
+    private HttpServer server;
+    private volatile int status;
+    private volatile String body;
+    private volatile Map<String, String> headers;
+    private volatile long delayMillis;
+    private volatile String lastAuthorization;
+    private volatile String lastIfNoneMatch;
+    private volatile String lastGraphqlRequest;
+    private volatile long emailsDelayMillis;
+    private volatile int emailsStatus = 200;
+    private final AtomicInteger emailRequests = new AtomicInteger();
+
+    private GitHubApiClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", this::handle);
+        server.createContext("/graphql", this::handleGraphql);
+        server.createContext("/user/emails", this::handleEmails);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        GitHubProperties properties = new GitHubProperties();
+        properties.getApi().setBaseUrl("http://localhost:" + server.getAddress().getPort() + "/");
+        properties.getApi().setReadTimeout(Duration.ofMillis(500));
+        properties.getCircuitBreaker().setFailureThreshold(2);
+        client = new GitHubApiClient(HttpClient.newHttpClient(), properties);
+
+        respond(200, USER_JSON, Map.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testValidTokenReturnsUser() throws Exception {
+        GitHubUserResponse response = client.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), null);
+
+        assertEquals(GitHubUserResponse.Status.OK, response.getStatus());
+        assertEquals("octocat", response.getUser().getLogin());
+        assertEquals("The Octocat", response.getUser().getName());
+        assertNull(response.getUser().getEmail());
+        assertEquals("https://avatars.example/u/1", response.getUser().getAvatarUrl());
+        assertEquals("Bearer ghp_valid", lastAuthorization);
+    }
+
+    @Test
+    void testConditionalRequestNotModified() throws Exception {
+        respond(200, USER_JSON, Map.of("ETag", "W/\"abc\""));
+        GitHubUserResponse first = client.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), null);
+        assertEquals("W/\"abc\"", first.getEtag());
+        assertNull(lastIfNoneMatch);
+
+        respond(304, "", Map.of("ETag", "W/\"abc\""));
+        GitHubUserResponse second = client.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), first.getEtag());
+
+        assertEquals(GitHubUserResponse.Status.NOT_MODIFIED, second.getStatus());
+        assertEquals("W/\"abc\"", lastIfNoneMatch);
+        assertEquals("W/\"abc\"", second.getEtag());
+        assertNull(second.getUser());
+    }
+
+    @Test
+    void testUnauthorized() throws Exception {
+        respond(401, "{\"message\":\"Bad credentials\"}", Map.of());
+
+        GitHubUserResponse response = client.fetchUser("ghp_bad", TokenDigest.of("ghp_bad"), null);
+
+        assertEquals(GitHubUserResponse.Status.UNAUTHORIZED, response.getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, client.circuitState());
+    }
+
+    @Test
+    void testServerErrorsOpenCircuit() {
+        respond(502, "", Map.of());
+
+        assertThrows(GitHubUnavailableException.class, () -> client.fetchUser("t", TokenDigest.of("t"), null));
+        assertThrows(GitHubUnavailableException.class, () -> client.fetchUser("t", TokenDigest.of("t"), null));
+
+        assertEquals(CircuitBreaker.State.OPEN, client.circuitState());
+        GitHubUnavailableException e = assertThrows(GitHubUnavailableException.class,
+                () -> client.fetchUser("t", TokenDigest.of("t"), null));
+        assertEquals("GitHub circuit is open", e.getMessage());
+    }
+
+    @Test
+    void testSaturatedCallbackExecutorFailsFast() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+            GitHubProperties properties = new GitHubProperties();
+            properties.getApi().setBaseUrl("http://localhost:" + server.getAddress().getPort());
+            GitHubApiClient saturated = new GitHubApiClient(
+                    HttpClient.newBuilder().executor(executor).build(), properties);
+
+            GitHubUnavailableException e = assertThrows(GitHubUnavailableException.class,
+                    () -> saturated.fetchUser("t", TokenDigest.of("t"), null));
+
+            assertEquals("GitHub client is saturated", e.getMessage());
+            assertEquals(CircuitBreaker.State.CLOSED, saturated.circuitState());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSlowResponseTimesOut() {
+        delayMillis = 2_000;
+
+        assertThrows(GitHubUnavailableException.class, () -> client.fetchUser("t", TokenDigest.of("t"), null));
+    }
+
+    @Test
+    void testRetryAfterPausesCalls() {
+        respond(429, "", Map.of("Retry-After", "60"));
+
+        GitHubUnavailableException first = assertThrows(GitHubUnavailableException.class,
+                () -> client.fetchUser("t", TokenDigest.of("t"), null));
+        assertEquals(Duration.ofSeconds(60), first.getRetryAfter());
+
+        respond(200, USER_JSON, Map.of());
+        assertThrows(GitHubUnavailableException.class, () -> client.fetchUser("other", TokenDigest.of("other"), null));
+        assertEquals(1, client.throttledCount());
+    }
+
+    @Test
+    void testTokenNearQuotaIsThrottled() throws Exception {
+        long reset = System.currentTimeMillis() / 1000 + 600;
+        respond(200, USER_JSON, Map.of("X-RateLimit-Remaining", "10", "X-RateLimit-Reset", String.valueOf(reset)));
+
+        client.fetchUser("t", TokenDigest.of("t"), null);
+
+        assertThrows(GitHubUnavailableException.class, () -> client.fetchUser("t", TokenDigest.of("t"), null));
+        assertEquals(GitHubUserResponse.Status.OK, client.fetchUser("other", TokenDigest.of("other"), null).getStatus());
+    }
+
+    @Test
+    void testMembershipsFetchedInOneGraphqlQuery() throws Exception {
+        respond(200, MEMBERSHIP_JSON, Map.of());
+
+        GitHubMemberships memberships = client.fetchMemberships("ghp_valid", "octocat", List.of("acme", "hidden-org"));
+
+        assertEquals(Set.of("acme", "octo-org", "acme/platform", "acme/security"), memberships.memberships());
+        // No X-OAuth-Scopes header: not a classic token, so nothing suggests memberships are hidden
+        assertTrue(memberships.complete());
+        assertEquals("Bearer ghp_valid", lastAuthorization);
+        // Logins and orgs are passed as variables, not spliced into the query
+        assertTrue(lastGraphqlRequest.contains("\"o1\":\"hidden-org\""));
+        assertTrue(lastGraphqlRequest.contains("\"login\":\"octocat\""));
+    }
+
+    @Test
+    void testMembershipsEmptyWhenGraphqlRefuses() throws Exception {
+        respond(403, "{\"message\":\"Resource not accessible\"}", Map.of());
+
+        assertEquals(GitHubMemberships.incomplete(), client.fetchMemberships("ghp_valid", "octocat", List.of()));
+    }
+
+    @Test
+    void testMembershipsIncompleteWithoutOrgScope() throws Exception {
+        respond(200, MEMBERSHIP_JSON, Map.of("X-OAuth-Scopes", "repo, user"));
+        assertFalse(client.fetchMemberships("ghp_valid", "octocat", List.of("acme")).complete());
+
+        respond(200, MEMBERSHIP_JSON, Map.of("X-OAuth-Scopes", "repo, read:org"));
+        assertTrue(client.fetchMemberships("ghp_valid", "octocat", List.of("acme")).complete());
+    }
+
+    @Test
+    void testPrimaryEmailFetchedAlongsideUser() throws Exception {
+        GitHubApiClient emailClient = emailClient();
+        delayMillis = 300;
+        emailsDelayMillis = 300;
+
+        long start = System.nanoTime();
+        GitHubUserResponse response = emailClient.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), null);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals("octocat@example.com", response.getUser().getEmail());
+        assertEquals("octocat", response.getUser().getLogin());
+        // Concurrent, so well short of the 600 ms the two calls take back to back
+        assertTrue(elapsedMillis < 550, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testPrimaryEmailDoesNotDelayFailedFetch() throws Exception {
+        GitHubApiClient emailClient = emailClient();
+        respond(401, "{\"message\":\"Bad credentials\"}", Map.of());
+        emailsDelayMillis = 2_000;
+
+        long start = System.nanoTime();
+        GitHubUserResponse response = emailClient.fetchUser("ghp_bad", TokenDigest.of("ghp_bad"), null);
+
+        assertEquals(GitHubUserResponse.Status.UNAUTHORIZED, response.getStatus());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+    }
+
+    @Test
+    void testPublicEmailAndNotModifiedSkipEmailLookup() throws Exception {
+        GitHubApiClient emailClient = emailClient();
+        respond(304, "", Map.of("ETag", "W/\"abc\""));
+
+        emailClient.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), "W/\"abc\"");
+
+        assertEquals(0, emailRequests.get());
+
+        respond(200, USER_JSON.replace("\"email\":null", "\"email\":\"public@example.com\""), Map.of());
+        GitHubUserResponse response = emailClient.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), null);
+        assertEquals("public@example.com", response.getUser().getEmail());
+    }
+
+    @Test
+    void testEmailLookupGoesThroughRateLimiterAndCircuitBreaker() throws Exception {
+        GitHubApiClient emailClient = emailClient();
+        long reset = System.currentTimeMillis() / 1000 + 600;
+        respond(200, USER_JSON, Map.of("X-RateLimit-Remaining", "10", "X-RateLimit-Reset", String.valueOf(reset)));
+
+        // Changed profile: /user answers first and leaves the token near its quota
+        GitHubUserResponse response = emailClient.fetchUser("ghp_valid", TokenDigest.of("ghp_valid"), "W/\"old\"");
+
+        assertNull(response.getUser().getEmail());
+        assertEquals(0, emailRequests.get());
+
+        // A failing lookup counts against the circuit; it answers after /user, so its failure is the last word
+        GitHubApiClient strictClient = emailClient(1);
+        emailsStatus = 502;
+        emailsDelayMillis = 100;
+        respond(200, USER_JSON, Map.of());
+        strictClient.fetchUser("other", TokenDigest.of("other"), null);
+
+        assertEquals(1, emailRequests.get());
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (strictClient.circuitState() != CircuitBreaker.State.OPEN && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, strictClient.circuitState());
+    }
+
+    private GitHubApiClient emailClient() {
+        return emailClient(new GitHubProperties().getCircuitBreaker().getFailureThreshold());
+    }
+
+    private GitHubApiClient emailClient(int failureThreshold) {
+        GitHubProperties properties = new GitHubProperties();
+        properties.getApi().setBaseUrl("http://localhost:" + server.getAddress().getPort());
+        properties.getApi().setFetchPrimaryEmail(true);
+        properties.getCircuitBreaker().setFailureThreshold(failureThreshold);
+        return new GitHubApiClient(HttpClient.newHttpClient(), properties);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(int status, String body, Map<String, String> headers) {
+        this.status = status;
+        this.body = body;
+        this.headers = headers;
+    }
+
+    private void handleGraphql(HttpExchange exchange) throws IOException {
+        lastGraphqlRequest = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        handle(exchange);
+    }
+
+    private void handleEmails(HttpExchange exchange) throws IOException {
+        emailRequests.incrementAndGet();
+        try {
+            Thread.sleep(emailsDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = EMAILS_JSON.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(emailsStatus, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+        lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
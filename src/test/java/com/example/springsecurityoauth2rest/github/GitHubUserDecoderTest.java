@@ -0,0 +1,50 @@
+package com.example.springsecurityoauth2rest.github;
+
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubUserDecoderTest {
+
+    @Test
+    void testDecodesWantedFieldsAndSkipsTheRest() throws IOException {
+        GitHubTokenAuthenticationFilter.GitHubUser user = decode("""
+                {"login":"octocat","id":1,"avatar_url":"https://avatars.example/u/1",
+                 "plan":{"name":"pro","login":"nested-must-be-ignored"},
+                 "name":"The Octocat","email":"octocat@github.com",
+                 "tags":["a",{"email":"also-ignored"}],"site_admin":false}""");
+
+        assertEquals("octocat", user.getLogin());
+        assertEquals("The Octocat", user.getName());
+        assertEquals("octocat@github.com", user.getEmail());
+        assertEquals("https://avatars.example/u/1", user.getAvatarUrl());
+    }
+
+    @Test
+    void testNullAndMissingFields() throws IOException {
+        GitHubTokenAuthenticationFilter.GitHubUser user = decode("{\"login\":\"octocat\",\"name\":null}");
+
+        assertEquals("octocat", user.getLogin());
+        assertNull(user.getName());
+        assertNull(user.getEmail());
+        assertNull(user.getAvatarUrl());
+    }
+
+    @Test
+    void testMissingLoginIsAnError() {
+        assertThrows(IOException.class, () -> decode("{\"name\":\"No Login\"}"));
+    }
+
+    @Test
+    void testNonObjectIsAnError() {
+        assertThrows(IOException.class, () -> decode("[]"));
+    }
+
+    private GitHubTokenAuthenticationFilter.GitHubUser decode(String json) throws IOException {
+        return GitHubUserDecoder.decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springsecurityoauth2rest.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivePrincipalTrackerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T10:00:30Z"));
+    private final ActivePrincipalTracker tracker = new ActivePrincipalTracker(1_000, clock);
+
+    @Test
+    void testCountsRequestsPerLogin() {
+        tracker.record("octocat");
+        tracker.record("octocat");
+        tracker.record("hubot");
+
+        List<ActivePrincipalTracker.Activity> active = tracker.activeWithin(Duration.ofMinutes(1));
+
+        assertEquals(List.of("octocat", "hubot"), active.stream().map(ActivePrincipalTracker.Activity::login).toList());
+        assertEquals(2, active.get(0).requests());
+        assertEquals(2, tracker.distinctUsers(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testWindowsSlide() {
+        tracker.record("octocat");
+        clock.advance(Duration.ofMinutes(3));
+        tracker.record("hubot");
+
+        assertEquals(1, tracker.activeWithin(Duration.ofMinutes(1)).size());
+        assertEquals(2, tracker.activeWithin(Duration.ofMinutes(5)).size());
+        assertEquals(1, tracker.distinctUsers(Duration.ofMinutes(1)));
+        assertEquals(2, tracker.distinctUsers(Duration.ofMinutes(5)));
+
+        clock.advance(Duration.ofMinutes(58));
+        assertEquals(1, tracker.distinctUsers(Duration.ofMinutes(60)));
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(0, tracker.distinctUsers(Duration.ofMinutes(60)));
+        assertTrue(tracker.activeWithin(Duration.ofMinutes(60)).isEmpty());
+        tracker.prune();
+        assertEquals(0, tracker.trackedCount());
+    }
+
+    @Test
+    void testLastMinuteDoesNotResetAtTheMinuteBoundary() {
+        int users = 1_000;
+        for (int i = 0; i < users; i++) {
+            tracker.record("user-" + i);
+        }
+
+        // 10:01:15, so three quarters of the last minute overlaps 10:00
+        clock.advance(Duration.ofSeconds(45));
+        assertEquals(users * 0.75, tracker.distinctUsers(Duration.ofMinutes(1)), users * 0.1);
+        assertEquals(users, tracker.distinctUsers(Duration.ofMinutes(5)), users * 0.1);
+
+        clock.advance(Duration.ofSeconds(60));
+        assertEquals(0, tracker.distinctUsers(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testDistinctCountBeyondTrackedLogins() {
+        int users = 50_000;
+        for (int i = 0; i < users; i++) {
+            tracker.record("user-" + i);
+            tracker.record("user-" + i);
+        }
+
+        long estimate = tracker.distinctUsers(Duration.ofMinutes(5));
+
+        assertEquals(users, estimate, users * 0.1);
+        // Individually tracked logins stay bounded; the sketch still counts the rest
+        assertEquals(1_000, tracker.trackedCount());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
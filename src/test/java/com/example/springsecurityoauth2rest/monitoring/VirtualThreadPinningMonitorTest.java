@@ -0,0 +1,75 @@
+package com.example.springsecurityoauth2rest.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    void testClassifiesInnermostKnownFrame() {
+        assertEquals(VirtualThreadPinningMonitor.PinningSource.JPA,
+                VirtualThreadPinningMonitor.classify(List.of(
+                        "java.lang.Object",
+                        "org.h2.engine.SessionLocal",
+                        "org.hibernate.engine.jdbc.internal.ResultSetReturnImpl",
+                        "com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter")));
+
+        assertEquals(VirtualThreadPinningMonitor.PinningSource.AUTHENTICATION_FILTER,
+                VirtualThreadPinningMonitor.classify(List.of(
+                        "com.example.springsecurityoauth2rest.github.GitHubApiClient",
+                        "com.example.springsecurityoauth2rest.security.GitHubIdentityResolver")));
+
+        assertEquals(VirtualThreadPinningMonitor.PinningSource.SECURITY_CONTEXT,
+                VirtualThreadPinningMonitor.classify(List.of(
+                        "org.springframework.security.core.context.SecurityContextHolder")));
+
+        assertEquals(VirtualThreadPinningMonitor.PinningSource.OTHER,
+                VirtualThreadPinningMonitor.classify(List.of("java.util.concurrent.locks.LockSupport")));
+    }
+
+    @Test
+    void testDisabledWithoutVirtualThreads() {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(false, true, Duration.ofMillis(20));
+
+        monitor.start();
+
+        assertFalse(monitor.isEnabled());
+        assertFalse(monitor.isRunning());
+    }
+
+    @Test
+    void testRecordsPinnedVirtualThread() throws Exception {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(true, true, Duration.ofMillis(10));
+        monitor.start();
+        try {
+            Object lock = new Object();
+            // Blocking inside synchronized pins the virtual thread to its carrier on Java 21
+            Thread pinned = Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            pinned.join();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (total(monitor) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(total(monitor) > 0);
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private long total(VirtualThreadPinningMonitor monitor) {
+        return monitor.pinnedCounts().values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.springsecurityoauth2rest.repository;
+
+import com.example.springsecurityoauth2rest.dto.UserSummary;
+import com.example.springsecurityoauth2rest.entity.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        ids = userRepository.saveAllAndFlush(List.of(
+                        new User("user1", "secret", "user1@example.com", "User", "One"),
+                        new User("user2", "secret", "user2@example.com", "User", "Two"),
+                        new User("user3", "secret", "user3@example.com", "User", "Three")))
+                .stream().map(User::getId).toList();
+        entityManager.clear();
+    }
+
+    @Test
+    void testKeysetPagesWalkTheTableInIdOrder() {
+        List<UserSummary> first = userRepository.findSummariesAfter(0, Limit.of(2));
+        List<UserSummary> second = userRepository.findSummariesAfter(first.get(1).id(), Limit.of(2));
+
+        assertEquals(List.of("user1", "user2"), first.stream().map(UserSummary::username).toList());
+        assertEquals(List.of("user3"), second.stream().map(UserSummary::username).toList());
+        assertEquals(ids.get(2), second.get(0).id());
+    }
+
+    @Test
+    void testSummariesAreNotManaged() {
+        List<UserSummary> users = userRepository.findSummariesAfter(0, Limit.of(10));
+
+        assertEquals(3, users.size());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void testAdminLookupOnlyMatchesRowsWithThePasswordMarker() {
+        User local = new User("octocat", "secret", "octocat@example.com", null, null);
+        local.setRole("ADMIN");
+        User synced = new User("hubot", "!github", "hubot@example.com", null, null);
+        synced.setRole("ADMIN");
+        User disabled = new User("mona", "!github", "mona@example.com", null, null);
+        disabled.setRole("ADMIN");
+        disabled.setEnabled(false);
+        userRepository.saveAllAndFlush(List.of(local, synced, disabled));
+
+        assertEquals(List.of("hubot"), userRepository.findEnabledUsernamesByRoleAndPassword("ADMIN", "!github"));
+    }
+
+    @Test
+    void testDeletesAreOneStatementWithoutLoading() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(1, userRepository.deleteUserById(ids.get(0)));
+        assertEquals(0, userRepository.deleteUserById(ids.get(0)));
+        assertEquals(2, userRepository.deleteUsersByIds(List.of(ids.get(1), ids.get(2), -1L)));
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, userRepository.count());
+    }
+}
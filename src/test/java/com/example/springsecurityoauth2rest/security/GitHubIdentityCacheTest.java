@@ -0,0 +1,101 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubIdentityCacheTest {
+
+    private GitHubIdentityCache identityCache;
+
+    @BeforeEach
+    void setUp() {
+        GitHubProperties properties = new GitHubProperties();
+        properties.getCache().setMaximumSize(100);
+        identityCache = new GitHubIdentityCache(properties);
+    }
+
+    @Test
+    void testDigestIsStableAndDoesNotExposeToken() {
+        TokenDigest first = TokenDigest.of("ghp_secret");
+        TokenDigest second = TokenDigest.of("ghp_secret");
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, TokenDigest.of("ghp_other"));
+        assertFalse(first.toString().contains("ghp_secret"));
+        assertEquals(64, first.toHex().length());
+    }
+
+    @Test
+    void testPutAndGet() {
+        TokenDigest digest = TokenDigest.of("token");
+        CachedIdentity identity = identity("octocat");
+
+        identityCache.put(digest, identity);
+
+        assertSame(identity, identityCache.get(TokenDigest.of("token")));
+        assertNull(identityCache.get(TokenDigest.of("unknown")));
+    }
+
+    @Test
+    void testStatsCountHitsAndMisses() {
+        identityCache.put(TokenDigest.of("token"), identity("octocat"));
+
+        identityCache.get(TokenDigest.of("token"));
+        identityCache.get(TokenDigest.of("token"));
+        identityCache.get(TokenDigest.of("missing"));
+
+        assertEquals(2, identityCache.stats().hitCount());
+        assertEquals(1, identityCache.stats().missCount());
+    }
+
+    @Test
+    void testInvalidate() {
+        TokenDigest digest = TokenDigest.of("token");
+        identityCache.put(digest, identity("octocat"));
+
+        identityCache.invalidate(digest);
+
+        assertNull(identityCache.get(digest));
+    }
+
+    @Test
+    void testSharedCacheServesOtherInstancesIdentities(@TempDir Path directory) throws Exception {
+        GitHubProperties properties = new GitHubProperties();
+        properties.getSharedCache().setEnabled(true);
+        properties.getSharedCache().setPath(directory.resolve("identity-cache.bin").toString());
+        properties.getSharedCache().setSlots(1024);
+        GitHubIdentityCache first = new GitHubIdentityCache(properties);
+        GitHubIdentityCache second = new GitHubIdentityCache(properties);
+        try {
+            first.put(TokenDigest.of("token"), identity("octocat"));
+
+            assertEquals("octocat", second.get(TokenDigest.of("token")).getUser().getLogin());
+            assertEquals(1, second.sharedHitCount());
+
+            // Past TTL plus staleness the shared copy is ignored
+            first.put(TokenDigest.of("old"), new CachedIdentity(
+                    new GitHubTokenAuthenticationFilter.GitHubUser("octocat", null, null, null),
+                    Instant.now().minus(Duration.ofHours(1)), null));
+            assertNull(second.get(TokenDigest.of("old")));
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private CachedIdentity identity(String login) {
+        return new CachedIdentity(
+                new GitHubTokenAuthenticationFilter.GitHubUser(login, "The Octocat", null, null),
+                Instant.now(),
+                null);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import com.example.springsecurityoauth2rest.github.GitHubApiClient;
+import com.example.springsecurityoauth2rest.github.GitHubUnavailableException;
+import com.example.springsecurityoauth2rest.github.GitHubUserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GitHubIdentityResolverTest {
+
+    @Mock
+    private GitHubApiClient gitHubApiClient;
+
+    private GitHubIdentityCache identityCache;
+    private RejectedTokenFilter rejectedTokens;
+    private GitHubIdentityResolver identityResolver;
+    private final List<Runnable> scheduledRefreshes = new ArrayList<>();
+    private boolean refreshPoolFull;
+
+    @BeforeEach
+    void setUp() {
+        GitHubProperties properties = new GitHubProperties();
+        properties.getCache().setTtl(Duration.ofMinutes(5));
+        properties.getCache().setMaxStaleness(Duration.ofMinutes(30));
+        properties.getRefreshAhead().setFraction(0.8);
+        properties.getRefreshAhead().setMinHits(3);
+        identityCache = new GitHubIdentityCache(properties);
+        rejectedTokens = new RejectedTokenFilter(properties);
+        identityResolver = new GitHubIdentityResolver(gitHubApiClient, identityCache, rejectedTokens, properties,
+                task -> {
+                    if (refreshPoolFull) {
+                        throw new RejectedExecutionException("full");
+                    }
+                    scheduledRefreshes.add(task);
+                });
+    }
+
+    @Test
+    void testValidTokenIsCached() throws Exception {
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), any())).thenReturn(GitHubUserResponse.ok(octocat(), "\"v1\""));
+
+        CachedIdentity first = identityResolver.resolve("ghp_valid");
+        CachedIdentity second = identityResolver.resolve("ghp_valid");
+
+        assertEquals("octocat", first.getUser().getLogin());
+        assertSame(first, second);
+        verify(gitHubApiClient, times(1)).fetchUser(eq("ghp_valid"), any(), any());
+    }
+
+    @Test
+    void testExpiredIdentityRevalidatedWithEtag() throws Exception {
+        CachedIdentity expired = identityValidatedAgo(Duration.ofMinutes(10));
+        identityCache.put(TokenDigest.of("ghp_valid"), expired);
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), eq("\"v1\"")))
+                .thenReturn(GitHubUserResponse.notModified("\"v1\""));
+
+        CachedIdentity revalidated = identityResolver.resolve("ghp_valid");
+
+        assertSame(expired.getUser(), revalidated.getUser());
+        assertTrue(revalidated.getValidatedAt().isAfter(expired.getValidatedAt()));
+        assertEquals(1, identityResolver.notModifiedCount());
+        assertSame(revalidated, identityResolver.resolve("ghp_valid"));
+    }
+
+    @Test
+    void testUnauthorizedTokenIsRememberedAsRejected() throws Exception {
+        when(gitHubApiClient.fetchUser(eq("ghp_revoked"), any(), any())).thenReturn(GitHubUserResponse.unauthorized());
+
+        assertNull(identityResolver.resolve("ghp_revoked"));
+        assertNull(identityResolver.resolve("ghp_revoked"));
+
+        verify(gitHubApiClient, times(1)).fetchUser(eq("ghp_revoked"), any(), any());
+        assertTrue(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_revoked")));
+    }
+
+    @Test
+    void testStaleIdentityServedWhileGitHubUnavailable() throws Exception {
+        CachedIdentity stale = identityValidatedAgo(Duration.ofMinutes(10));
+        identityCache.put(TokenDigest.of("ghp_valid"), stale);
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), any()))
+                .thenThrow(new GitHubUnavailableException("GitHub circuit is open", Duration.ofSeconds(30)));
+
+        assertSame(stale, identityResolver.resolve("ghp_valid"));
+        assertEquals(1, identityResolver.staleServedCount());
+    }
+
+    @Test
+    void testTooStaleIdentityIsNotServed() throws Exception {
+        identityCache.put(TokenDigest.of("ghp_valid"), identityValidatedAgo(Duration.ofMinutes(40)));
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), any()))
+                .thenThrow(new GitHubUnavailableException("GitHub responded with 502", null));
+
+        assertThrows(GitHubUnavailableException.class, () -> identityResolver.resolve("ghp_valid"));
+    }
+
+    @Test
+    void testUnavailableWithoutCachedIdentityPropagates() throws Exception {
+        when(gitHubApiClient.fetchUser(eq("ghp_new"), any(), any()))
+                .thenThrow(new GitHubUnavailableException("GitHub request failed", null));
+
+        assertThrows(GitHubUnavailableException.class, () -> identityResolver.resolve("ghp_new"));
+        assertFalse(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_new")));
+    }
+
+    @Test
+    void testHotIdentityRefreshedInBackground() throws Exception {
+        CachedIdentity aging = identityValidatedAgo(Duration.ofSeconds(270));
+        identityCache.put(TokenDigest.of("ghp_valid"), aging);
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), eq("\"v1\"")))
+                .thenReturn(GitHubUserResponse.notModified("\"v1\""));
+
+        for (int i = 0; i < 5; i++) {
+            // Served the current identity; no request waits for GitHub
+            assertSame(aging, identityResolver.resolve("ghp_valid"));
+        }
+        verifyNoInteractions(gitHubApiClient);
+        assertEquals(1, scheduledRefreshes.size());
+
+        scheduledRefreshes.get(0).run();
+
+        CachedIdentity refreshed = identityResolver.resolve("ghp_valid");
+        assertNotSame(aging, refreshed);
+        assertTrue(refreshed.isFresh(Instant.now(), Duration.ofMinutes(1)));
+        assertEquals(1, identityResolver.refreshesScheduledCount());
+    }
+
+    @Test
+    void testRarelyUsedIdentityIsNotRefreshedAhead() throws Exception {
+        identityCache.put(TokenDigest.of("ghp_valid"), identityValidatedAgo(Duration.ofSeconds(270)));
+
+        identityResolver.resolve("ghp_valid");
+        identityResolver.resolve("ghp_valid");
+
+        assertTrue(scheduledRefreshes.isEmpty());
+    }
+
+    @Test
+    void testRecentlyValidatedIdentityIsNotRefreshed() throws Exception {
+        identityCache.put(TokenDigest.of("ghp_valid"), identityValidatedAgo(Duration.ofMinutes(1)));
+
+        for (int i = 0; i < 10; i++) {
+            identityResolver.resolve("ghp_valid");
+        }
+
+        assertTrue(scheduledRefreshes.isEmpty());
+    }
+
+    @Test
+    void testRefreshDroppedWhenPoolIsFullAndRetriedLater() throws Exception {
+        identityCache.put(TokenDigest.of("ghp_valid"), identityValidatedAgo(Duration.ofSeconds(270)));
+        refreshPoolFull = true;
+
+        for (int i = 0; i < 3; i++) {
+            identityResolver.resolve("ghp_valid");
+        }
+        assertEquals(1, identityResolver.refreshesDroppedCount());
+
+        refreshPoolFull = false;
+        identityResolver.resolve("ghp_valid");
+        assertEquals(1, scheduledRefreshes.size());
+    }
+
+    @Test
+    void testFailedRefreshKeepsServingCurrentIdentity() throws Exception {
+        CachedIdentity aging = identityValidatedAgo(Duration.ofSeconds(270));
+        identityCache.put(TokenDigest.of("ghp_valid"), aging);
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), any()))
+                .thenThrow(new GitHubUnavailableException("GitHub circuit is open", null));
+
+        for (int i = 0; i < 3; i++) {
+            identityResolver.resolve("ghp_valid");
+        }
+        scheduledRefreshes.get(0).run();
+
+        assertSame(aging, identityResolver.resolve("ghp_valid"));
+        assertEquals(1, identityResolver.refreshesFailedCount());
+        assertEquals(2, scheduledRefreshes.size());
+    }
+
+    @Test
+    void testRefreshWithoutNewIdentityAllowsAnotherRefresh() throws Exception {
+        CachedIdentity aging = identityValidatedAgo(Duration.ofSeconds(270));
+        identityCache.put(TokenDigest.of("ghp_valid"), aging);
+        when(gitHubApiClient.fetchUser(eq("ghp_valid"), any(), any())).thenReturn(GitHubUserResponse.rejected());
+
+        for (int i = 0; i < 3; i++) {
+            identityResolver.resolve("ghp_valid");
+        }
+        scheduledRefreshes.get(0).run();
+
+        assertSame(aging, identityResolver.resolve("ghp_valid"));
+        assertEquals(1, identityResolver.refreshesFailedCount());
+        assertEquals(2, scheduledRefreshes.size());
+    }
+
+    private GitHubTokenAuthenticationFilter.GitHubUser octocat() {
+        return new GitHubTokenAuthenticationFilter.GitHubUser("octocat", "The Octocat", null, null);
+    }
+
+    private CachedIdentity identityValidatedAgo(Duration age) {
+        return new CachedIdentity(octocat(), Instant.now().minus(age), "\"v1\"");
+    }
+}
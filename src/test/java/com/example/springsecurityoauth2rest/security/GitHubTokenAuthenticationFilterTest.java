@@ -0,0 +1,64 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.monitoring.ActivePrincipalTracker;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GitHubTokenAuthenticationFilterTest {
+
+    @Mock
+    private GitHubIdentityResolver identityResolver;
+
+    @Mock
+    private RoleResolver roleResolver;
+
+    @Mock
+    private GitHubUserSyncService userSyncService;
+
+    @Mock
+    private ActivePrincipalTracker activePrincipalTracker;
+
+    @InjectMocks
+    private GitHubTokenAuthenticationFilter filter;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testAuthenticationSharesTheInternedAuthorities() throws Exception {
+        GitHubTokenAuthenticationFilter.GitHubUser octocat =
+                new GitHubTokenAuthenticationFilter.GitHubUser("octocat", "The Octocat", null, null);
+        when(identityResolver.resolve("ghp_valid")).thenReturn(new CachedIdentity(octocat, Instant.now(), null));
+        when(roleResolver.authoritiesFor("octocat", "ghp_valid")).thenReturn(AuthoritySets.USER_AND_ADMIN);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer ghp_valid");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertSame(AuthoritySets.USER_AND_ADMIN, authentication.getAuthorities());
+        assertEquals("octocat", authentication.getName());
+        assertSame(octocat, authentication.getDetails());
+        assertTrue(authentication.isAuthenticated());
+        assertNull(authentication.getCredentials());
+        verify(userSyncService).recordSighting(octocat);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityCacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private GitHubProperties properties;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("identity-snapshot.bin");
+        properties = new GitHubProperties();
+        properties.getCache().setTtl(Duration.ofMinutes(5));
+        properties.getSnapshot().setPath(file.toString());
+    }
+
+    @Test
+    void testIdentitiesSurviveRestart() {
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        Instant validatedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        before.put(TokenDigest.of("ghp_valid"), identity("octocat", validatedAt));
+        before.put(TokenDigest.of("ghp_other"), identity("hubot", validatedAt));
+
+        assertEquals(2, new IdentityCacheSnapshot(before, properties).write());
+
+        GitHubIdentityCache after = new GitHubIdentityCache(properties);
+        assertEquals(2, new IdentityCacheSnapshot(after, properties).load());
+
+        CachedIdentity restored = after.get(TokenDigest.of("ghp_valid"));
+        assertEquals("octocat", restored.getUser().getLogin());
+        assertEquals("\"v1\"", restored.getEtag());
+        assertEquals(validatedAt, restored.getValidatedAt());
+        assertEquals("The Octocat", restored.getUser().getName());
+        // Consumed once, so a later start never replays it
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testWriteUsesATemporaryFileOfItsOwn() throws Exception {
+        // Another instance part way through writing to the same directory
+        Path otherTemporary = Files.writeString(directory.resolve("identity-snapshot.bin.tmp"), "in progress");
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        before.put(TokenDigest.of("ghp_valid"), identity("octocat", Instant.now()));
+
+        assertEquals(1, new IdentityCacheSnapshot(before, properties).write());
+
+        assertEquals("in progress", Files.readString(otherTemporary));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.of(file, otherTemporary), files.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testExpiredEntriesAreDroppedOnLoad() {
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        before.put(TokenDigest.of("ghp_fresh"), identity("octocat", Instant.now()));
+        before.put(TokenDigest.of("ghp_expired"), identity("hubot", Instant.now().minus(Duration.ofMinutes(10))));
+        new IdentityCacheSnapshot(before, properties).write();
+
+        GitHubIdentityCache after = new GitHubIdentityCache(properties);
+
+        assertEquals(1, new IdentityCacheSnapshot(after, properties).load());
+        assertNull(after.get(TokenDigest.of("ghp_expired")));
+    }
+
+    @Test
+    void testManyEntriesSpanSeveralBlocks() {
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        for (int i = 0; i < 2_000; i++) {
+            before.put(TokenDigest.of("token-" + i), identity("user-" + i, Instant.now()));
+        }
+        new IdentityCacheSnapshot(before, properties).write();
+
+        GitHubIdentityCache after = new GitHubIdentityCache(properties);
+
+        assertEquals(2_000, new IdentityCacheSnapshot(after, properties).load());
+        assertEquals("user-1234", after.get(TokenDigest.of("token-1234")).getUser().getLogin());
+    }
+
+    @Test
+    void testDamagedSnapshotIsIgnored() throws Exception {
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        before.put(TokenDigest.of("ghp_valid"), identity("octocat", Instant.now()));
+        new IdentityCacheSnapshot(before, properties).write();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Flip a byte inside the first block's payload
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), 20 + 8 + 40);
+        }
+        GitHubIdentityCache after = new GitHubIdentityCache(properties);
+
+        assertEquals(0, new IdentityCacheSnapshot(after, properties).load());
+        assertNull(after.get(TokenDigest.of("ghp_valid")));
+    }
+
+    @Test
+    void testUnknownVersionIsIgnored() throws Exception {
+        Files.write(file, new byte[] {0x47, 0x48, 0x53, 0x4E, 0, 0, 0, 9, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        assertEquals(0, new IdentityCacheSnapshot(new GitHubIdentityCache(properties), properties).load());
+    }
+
+    @Test
+    void testLoadStopsAtBudget() {
+        GitHubIdentityCache before = new GitHubIdentityCache(properties);
+        before.put(TokenDigest.of("ghp_valid"), identity("octocat", Instant.now()));
+        new IdentityCacheSnapshot(before, properties).write();
+        properties.getSnapshot().setLoadBudget(Duration.ZERO);
+
+        assertEquals(0, new IdentityCacheSnapshot(new GitHubIdentityCache(properties), properties).load());
+    }
+
+    private CachedIdentity identity(String login, Instant validatedAt) {
+        return new CachedIdentity(
+                new GitHubTokenAuthenticationFilter.GitHubUser(login, "The Octocat", null, null),
+                validatedAt,
+                "\"v1\"");
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.springsecurityoauth2rest.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedIdentityStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private MappedIdentityStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("identity-cache.bin");
+        store = MappedIdentityStore.open(file, 64, 512);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void testRoundTrip() {
+        CachedIdentity identity = identity("octocat", "W/\"abc\"");
+
+        assertTrue(store.put(TokenDigest.of("ghp_valid"), identity));
+        CachedIdentity read = store.get(TokenDigest.of("ghp_valid"));
+
+        assertEquals("octocat", read.getUser().getLogin());
+        assertEquals("The Octocat", read.getUser().getName());
+        assertNull(read.getUser().getEmail());
+        assertEquals("https://avatars.example/u/1", read.getUser().getAvatarUrl());
+        assertEquals("W/\"abc\"", read.getEtag());
+        assertEquals(identity.getValidatedAt(), read.getValidatedAt());
+        assertNull(store.get(TokenDigest.of("ghp_other")));
+    }
+
+    @Test
+    void testSharedBetweenMappingsAndAcrossReopen() throws IOException {
+        // Two mappings of one file stand in for two JVMs on the host
+        try (MappedIdentityStore other = MappedIdentityStore.open(file, 64, 512)) {
+            store.put(TokenDigest.of("ghp_valid"), identity("octocat", null));
+            assertEquals("octocat", other.get(TokenDigest.of("ghp_valid")).getUser().getLogin());
+
+            other.invalidate(TokenDigest.of("ghp_valid"));
+            assertNull(store.get(TokenDigest.of("ghp_valid")));
+
+            other.put(TokenDigest.of("ghp_valid"), identity("hubot", null));
+        }
+        store.close();
+
+        store = MappedIdentityStore.open(file, 64, 512);
+        assertEquals("hubot", store.get(TokenDigest.of("ghp_valid")).getUser().getLogin());
+    }
+
+    @Test
+    void testDifferentGeometryIsRefused() {
+        assertThrows(IllegalStateException.class, () -> MappedIdentityStore.open(file, 128, 512));
+    }
+
+    @Test
+    void testOversizedIdentityIsNotStored() {
+        String longName = "x".repeat(600);
+        CachedIdentity identity = new CachedIdentity(
+                new GitHubTokenAuthenticationFilter.GitHubUser("octocat", longName, null, null),
+                Instant.now(), null);
+
+        assertFalse(store.put(TokenDigest.of("ghp_valid"), identity));
+        assertNull(store.get(TokenDigest.of("ghp_valid")));
+        assertEquals(1, store.writesSkippedCount());
+    }
+
+    @Test
+    void testOldestEntryInProbeRangeIsReplaced() {
+        // 64 slots, probe length 4: many more digests than slots must still read back correctly or not at all
+        for (int i = 0; i < 1_000; i++) {
+            store.put(TokenDigest.of("token-" + i), identity("user-" + i, null));
+        }
+        int found = 0;
+        for (int i = 0; i < 1_000; i++) {
+            CachedIdentity read = store.get(TokenDigest.of("token-" + i));
+            if (read != null) {
+                assertEquals("user-" + i, read.getUser().getLogin());
+                found++;
+            }
+        }
+        assertTrue(found > 0 && found <= 64);
+    }
+
+    @Test
+    void testReadersNeverSeeTornWrites() throws Exception {
+        TokenDigest digest = TokenDigest.of("ghp_contended");
+        store.put(digest, identity("user-0", null));
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 1; running.get(); i++) {
+                    // Login and name always agree; a torn read would mix two writes
+                    String login = "user-" + i;
+                    store.put(digest, new CachedIdentity(
+                            new GitHubTokenAuthenticationFilter.GitHubUser(login, login, null, null),
+                            Instant.now(), null));
+                }
+            });
+            Runnable reader = () -> {
+                for (int i = 0; i < 20_000; i++) {
+                    CachedIdentity read = store.get(digest);
+                    if (read != null && !"user-0".equals(read.getUser().getLogin())) {
+                        assertEquals(read.getUser().getLogin(), read.getUser().getName());
+                    }
+                }
+            };
+            Future<?> first = executor.submit(reader);
+            Future<?> second = executor.submit(reader);
+            first.get();
+            second.get();
+            running.set(false);
+            writer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentWritersNeverStoreADigestTwice() throws Exception {
+        // Four slots: every digest shares one probe run, so writers keep displacing each other
+        Path small = directory.resolve("small.bin");
+        TokenDigest digest = TokenDigest.of("ghp_contended");
+        byte[] needle = digest.toBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (MappedIdentityStore contended = MappedIdentityStore.open(small, 4, 256)) {
+            for (int round = 0; round < 50; round++) {
+                List<Future<?>> writers = new ArrayList<>();
+                for (int w = 0; w < 4; w++) {
+                    String prefix = w < 3 ? null : "other-" + w + "-";
+                    writers.add(executor.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            contended.put(prefix == null ? digest : TokenDigest.of(prefix + i), identity("user-" + i, null));
+                        }
+                    }));
+                }
+                for (Future<?> writer : writers) {
+                    writer.get();
+                }
+                // Slots of 256 bytes after a 64-byte header: digest at 8, validated-at at 40
+                ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(small));
+                int copies = 0;
+                for (int slot = 64; slot < content.capacity(); slot += 256) {
+                    if (content.getLong(slot + 40) != 0
+                            && Arrays.equals(content.array(), slot + 8, slot + 8 + needle.length, needle, 0, needle.length)) {
+                        copies++;
+                    }
+                }
+                assertTrue(copies <= 1, "digest stored " + copies + " times");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CachedIdentity identity(String login, String etag) {
+        return new CachedIdentity(
+                new GitHubTokenAuthenticationFilter.GitHubUser(login, "The Octocat", null, "https://avatars.example/u/1"),
+                Instant.now().truncatedTo(ChronoUnit.MILLIS),
+                etag);
+    }
+}
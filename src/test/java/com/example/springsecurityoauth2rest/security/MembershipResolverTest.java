@@ -0,0 +1,114 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.RoleProperties;
+import com.example.springsecurityoauth2rest.github.GitHubApiClient;
+import com.example.springsecurityoauth2rest.github.GitHubMemberships;
+import com.example.springsecurityoauth2rest.github.GitHubUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MembershipResolverTest {
+
+    @Mock
+    private GitHubApiClient gitHubApiClient;
+
+    private RoleProperties properties;
+    private MembershipResolver membershipResolver;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RoleProperties();
+        properties.setMembershipRoles(Map.of(
+                "admin", List.of("Acme/Platform"),
+                "AUDITOR", List.of("acme", "other-org/security")));
+        membershipResolver = new MembershipResolver(gitHubApiClient, properties);
+    }
+
+    @Test
+    void testTeamAndOrgMembershipGrantRoles() throws Exception {
+        when(gitHubApiClient.fetchMemberships("t", "octocat", List.of("acme", "other-org")))
+                .thenReturn(complete("acme", "acme/platform"));
+
+        MembershipRoles roles = membershipResolver.rolesFor("octocat", "t");
+
+        assertEquals(Set.of("ADMIN", "AUDITOR"), roles.getRoles());
+        assertEquals(AuthoritySets.of(Set.of("USER", "ADMIN", "AUDITOR")), roles.authorities(false));
+    }
+
+    @Test
+    void testMembershipsCachedPerLoginAndSharedAcrossUsers() throws Exception {
+        when(gitHubApiClient.fetchMemberships(anyString(), anyString(), anyList())).thenReturn(complete("acme"));
+
+        MembershipRoles first = membershipResolver.rolesFor("octocat", "t1");
+        membershipResolver.rolesFor("OctoCat", "t2");
+        MembershipRoles other = membershipResolver.rolesFor("hubot", "t3");
+
+        verify(gitHubApiClient, times(2)).fetchMemberships(anyString(), anyString(), anyList());
+        assertSame(first, other);
+        assertEquals(1, membershipResolver.internedCount());
+    }
+
+    @Test
+    void testNonMemberGetsNoExtraRoles() throws Exception {
+        when(gitHubApiClient.fetchMemberships(anyString(), anyString(), anyList())).thenReturn(complete("unrelated"));
+
+        MembershipRoles roles = membershipResolver.rolesFor("hubot", "t");
+
+        assertSame(MembershipRoles.NONE, roles);
+        assertSame(AuthoritySets.USER_ONLY, roles.authorities(false));
+        assertSame(AuthoritySets.USER_AND_ADMIN, roles.authorities(true));
+    }
+
+    @Test
+    void testFailureIsNotCached() throws Exception {
+        when(gitHubApiClient.fetchMemberships(anyString(), anyString(), anyList()))
+                .thenThrow(new GitHubUnavailableException("GitHub circuit is open", null))
+                .thenReturn(complete("acme/platform"));
+
+        assertSame(MembershipRoles.NONE, membershipResolver.rolesFor("octocat", "t"));
+        assertEquals(1, membershipResolver.failureCount());
+        assertEquals(Set.of("ADMIN"), membershipResolver.rolesFor("octocat", "t").getRoles());
+    }
+
+    @Test
+    void testIncompleteAnswerIsCachedOnlyForItsToken() throws Exception {
+        when(gitHubApiClient.fetchMemberships(eq("public-only"), anyString(), anyList()))
+                .thenReturn(new GitHubMemberships(Set.of(), false));
+        when(gitHubApiClient.fetchMemberships(eq("read-org"), anyString(), anyList()))
+                .thenReturn(complete("acme/platform"));
+
+        assertSame(MembershipRoles.NONE, membershipResolver.rolesFor("octocat", "public-only"));
+        assertSame(MembershipRoles.NONE, membershipResolver.rolesFor("octocat", "public-only"));
+        assertEquals(Set.of("ADMIN"), membershipResolver.rolesFor("octocat", "read-org").getRoles());
+        // The complete answer now serves the login, whichever token it presents
+        assertEquals(Set.of("ADMIN"), membershipResolver.rolesFor("octocat", "public-only").getRoles());
+
+        verify(gitHubApiClient, times(1)).fetchMemberships(eq("public-only"), anyString(), anyList());
+        verify(gitHubApiClient, times(1)).fetchMemberships(eq("read-org"), anyString(), anyList());
+    }
+
+    @Test
+    void testNoRulesNeverCallsGitHub() {
+        MembershipResolver disabled = new MembershipResolver(gitHubApiClient, new RoleProperties());
+
+        assertSame(MembershipRoles.NONE, disabled.rolesFor("octocat", "t"));
+        assertFalse(disabled.isEnabled());
+        verifyNoInteractions(gitHubApiClient);
+    }
+
+    private static GitHubMemberships complete(String... memberships) {
+        return new GitHubMemberships(Set.of(memberships), true);
+    }
+}
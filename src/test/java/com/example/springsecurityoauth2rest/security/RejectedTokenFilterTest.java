@@ -0,0 +1,75 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.GitHubProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RejectedTokenFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private GitHubProperties.NegativeCache config;
+    private RejectedTokenFilter rejectedTokens;
+
+    @BeforeEach
+    void setUp() {
+        config = new GitHubProperties.NegativeCache();
+        config.setWindow(Duration.ofMinutes(10));
+        config.setExpectedInsertions(1_000);
+        config.setFalsePositiveProbability(1e-6);
+        rejectedTokens = new RejectedTokenFilter(config, clock::get);
+    }
+
+    @Test
+    void testRecordedTokenIsRejected() {
+        rejectedTokens.recordRejected(TokenDigest.of("ghp_revoked"));
+
+        assertTrue(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_revoked")));
+        assertFalse(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_valid")));
+        assertEquals(1, rejectedTokens.shortCircuitCount());
+    }
+
+    @Test
+    void testRejectionSurvivesOneRotation() {
+        rejectedTokens.recordRejected(TokenDigest.of("ghp_revoked"));
+
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertTrue(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_revoked")));
+    }
+
+    @Test
+    void testRejectionIsForgottenAfterWindow() {
+        rejectedTokens.recordRejected(TokenDigest.of("ghp_revoked"));
+
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        rejectedTokens.mightBeRejected(TokenDigest.of("other"));
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertFalse(rejectedTokens.mightBeRejected(TokenDigest.of("ghp_revoked")));
+    }
+
+    @Test
+    void testFloodKeepsMemoryFixedAndFalsePositivesLow() {
+        long memoryBefore = rejectedTokens.memoryBytes();
+
+        for (int i = 0; i < 50_000; i++) {
+            rejectedTokens.recordRejected(TokenDigest.of("random-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (rejectedTokens.mightBeRejected(TokenDigest.of("legit-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        assertEquals(memoryBefore, rejectedTokens.memoryBytes());
+        assertEquals(0, falsePositives);
+        assertTrue(rejectedTokens.mightBeRejected(TokenDigest.of("random-49999")));
+    }
+}
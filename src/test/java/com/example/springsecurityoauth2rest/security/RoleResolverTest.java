@@ -0,0 +1,97 @@
+package com.example.springsecurityoauth2rest.security;
+
+import com.example.springsecurityoauth2rest.config.RoleProperties;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.service.GitHubUserSyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoleResolverTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RoleProperties properties;
+    private RoleResolver roleResolver;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RoleProperties();
+        properties.setAdminUsers(List.of("Octocat"));
+        properties.setUseDatabase(true);
+        // No membership rules configured, so GitHub is never asked
+        roleResolver = new RoleResolver(properties, userRepository, new MembershipResolver(null, properties));
+    }
+
+    @Test
+    void testConfiguredAdminMatchesCaseInsensitively() {
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), names(roleResolver.authoritiesFor("octocat")));
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), names(roleResolver.authoritiesFor("OCTOCAT")));
+        assertEquals(List.of("ROLE_USER"), names(roleResolver.authoritiesFor("hubot")));
+    }
+
+    @Test
+    void testAuthorityListsAreSharedAndImmutable() {
+        assertSame(roleResolver.authoritiesFor("hubot"), roleResolver.authoritiesFor("monalisa"));
+        assertSame(roleResolver.authoritiesFor("octocat"), AuthoritySets.of(Set.of("ADMIN", "USER")));
+        assertSame(AuthoritySets.of(List.of("USER", "ADMIN")), AuthoritySets.of(List.of("ADMIN", "USER")));
+        assertThrows(UnsupportedOperationException.class, () -> roleResolver.authoritiesFor("hubot").clear());
+    }
+
+    @Test
+    void testReloadPicksUpDatabaseAdmins() {
+        when(userRepository.findEnabledUsernamesByRoleAndPassword("ADMIN", GitHubUserSyncService.NO_PASSWORD)).thenReturn(List.of("hubot"));
+
+        roleResolver.reload();
+
+        assertTrue(roleResolver.isAdmin("hubot"));
+        assertTrue(roleResolver.isAdmin("octocat"));
+        assertEquals(2, roleResolver.adminCount());
+
+        when(userRepository.findEnabledUsernamesByRoleAndPassword("ADMIN", GitHubUserSyncService.NO_PASSWORD)).thenReturn(List.of());
+        roleResolver.reload();
+
+        assertFalse(roleResolver.isAdmin("hubot"));
+    }
+
+    @Test
+    void testDatabaseFailureKeepsPreviousAdmins() {
+        when(userRepository.findEnabledUsernamesByRoleAndPassword("ADMIN", GitHubUserSyncService.NO_PASSWORD)).thenReturn(List.of("hubot"));
+        roleResolver.reload();
+        when(userRepository.findEnabledUsernamesByRoleAndPassword("ADMIN", GitHubUserSyncService.NO_PASSWORD)).thenThrow(new IllegalStateException("database down"));
+
+        roleResolver.reload();
+
+        assertTrue(roleResolver.isAdmin("hubot"));
+    }
+
+    @Test
+    void testDatabaseIsOffByDefault() {
+        assertFalse(new RoleProperties().isUseDatabase());
+    }
+
+    @Test
+    void testDatabaseCanBeDisabled() {
+        properties.setUseDatabase(false);
+
+        roleResolver.reload();
+
+        verifyNoInteractions(userRepository);
+        assertTrue(roleResolver.isAdmin("octocat"));
+    }
+
+    private static List<String> names(List<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springsecurityoauth2rest.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 20;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testConcurrentCallersShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(() -> singleFlight.execute("token", () -> {
+            calls.incrementAndGet();
+            release.await();
+            return "octocat";
+        }));
+
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("octocat", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void testFailureIsSharedWithWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(() -> singleFlight.execute("token", () -> {
+            release.await();
+            throw new IOException("GitHub timed out");
+        }));
+
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            assertEquals("GitHub timed out", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void testNullResultIsShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(() -> singleFlight.execute("token", () -> {
+            release.await();
+            return null;
+        }));
+
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertNull(result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testSequentialCallsAreNotCoalesced() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("token", () -> String.valueOf(calls.incrementAndGet()));
+        singleFlight.execute("token", () -> String.valueOf(calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    private List<Future<String>> runConcurrently(Callable<String> task) {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(task));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.coalescedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, singleFlight.coalescedCount());
+    }
+}
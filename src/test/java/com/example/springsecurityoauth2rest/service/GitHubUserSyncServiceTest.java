@@ -0,0 +1,195 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.UserCacheConfig;
+import com.example.springsecurityoauth2rest.config.UserSyncProperties;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class GitHubUserSyncServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserSyncProperties properties;
+    private GitHubUserSyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UserSyncProperties();
+        properties.setBatchSize(1_000);
+        syncService = new GitHubUserSyncService(jdbcTemplate, new TransactionTemplate(transactionManager),
+                entityManagerFactory, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        syncService.close();
+    }
+
+    @Test
+    void testNewLoginInsertedOnlyWhenFlushed() {
+        syncService.recordSighting(user("octocat", null));
+
+        assertTrue(userRepository.findByUsername("octocat").isEmpty());
+        assertEquals(1, syncService.flush());
+
+        User user = userRepository.findByUsername("octocat").orElseThrow();
+        assertEquals("octocat@users.noreply.github.com", user.getEmail());
+        assertEquals("USER", user.getRole());
+        assertEquals(GitHubUserSyncService.NO_PASSWORD, user.getPassword());
+        assertNotNull(user.getLastSeenAt());
+        assertEquals(1, syncService.insertedCount());
+    }
+
+    @Test
+    void testRepeatedSightingsCoalesce() {
+        for (int i = 0; i < 100; i++) {
+            syncService.recordSighting(user("octocat", "octocat@example.com"));
+            syncService.recordSighting(user("hubot", null));
+        }
+
+        assertEquals(2, syncService.pendingCount());
+        assertEquals(2, syncService.flush());
+        assertEquals(0, syncService.pendingCount());
+        assertEquals("octocat@example.com", userRepository.findByUsername("octocat").orElseThrow().getEmail());
+    }
+
+    @Test
+    void testExistingUserOnlyGetsLastSeenUpdated() {
+        // A row the sync created earlier, since promoted to admin
+        User admin = new User("octocat", GitHubUserSyncService.NO_PASSWORD, "admin@example.com", "Mona", "Lisa");
+        admin.setRole("ADMIN");
+        userRepository.saveAndFlush(admin);
+        Instant before = Instant.now();
+
+        syncService.recordSighting(user("octocat", "other@example.com"));
+        syncService.flush();
+
+        User user = userRepository.findByUsername("octocat").orElseThrow();
+        assertEquals("ADMIN", user.getRole());
+        assertEquals(GitHubUserSyncService.NO_PASSWORD, user.getPassword());
+        assertEquals("admin@example.com", user.getEmail());
+        assertFalse(jdbcTemplate.queryForObject("select last_seen_at from users where username = 'octocat'",
+                java.sql.Timestamp.class).toInstant().isBefore(before.minusMillis(1)));
+        assertEquals(0, syncService.insertedCount());
+    }
+
+    @Test
+    void testEmailUsedByAnotherUserFallsBackToNoreply() {
+        userRepository.saveAndFlush(new User("mona", "{bcrypt}hash", "shared@example.com", null, null));
+
+        syncService.recordSighting(user("octocat", "shared@example.com"));
+        syncService.flush();
+
+        assertEquals("octocat@users.noreply.github.com", userRepository.findByUsername("octocat").orElseThrow().getEmail());
+        assertEquals(1, syncService.insertedCount());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testConflictingRowDoesNotFailTheRestOfItsBatch() {
+        // A local account already holds octocat's noreply address, so octocat's insert breaks the email constraint
+        jdbcTemplate.update("insert into users (id, username, password, email, role, enabled, version) "
+                + "values (next value for users_seq, 'mona', 'secret', 'octocat@users.noreply.github.com', 'USER', true, 0)");
+        syncService.recordSighting(user("octocat", null));
+        syncService.recordSighting(user("hubot", null));
+        syncService.recordSighting(user("monalisa", null));
+
+        try {
+            assertEquals(2, syncService.flush());
+
+            assertTrue(userRepository.findByUsername("octocat").isEmpty());
+            assertTrue(userRepository.findByUsername("hubot").isPresent());
+            assertTrue(userRepository.findByUsername("monalisa").isPresent());
+            // The batch, then the conflicting row on its own
+            assertEquals(2, syncService.failedBatchCount());
+            assertEquals(1, syncService.pendingCount());
+
+            assertEquals(0, syncService.flush());
+            assertEquals(0, syncService.pendingCount());
+            assertEquals(1, syncService.droppedCount());
+        } finally {
+            jdbcTemplate.update("delete from users where username in (?, ?, ?, ?)",
+                    "mona", "octocat", "hubot", "monalisa");
+        }
+    }
+
+    @Test
+    void testLongLoginsSharingAPrefixGetDifferentEmails() {
+        String prefix = "a".repeat(30);
+        syncService.recordSighting(user(prefix + "-first", null));
+        syncService.recordSighting(user(prefix + "-second", null));
+
+        assertEquals(2, syncService.flush());
+
+        List<String> emails = jdbcTemplate.queryForList(
+                "select email from users where username like ?", String.class, prefix + "%");
+        assertEquals(2, emails.size());
+        assertNotEquals(emails.get(0), emails.get(1));
+        assertTrue(emails.stream().allMatch(email -> email.length() <= 50 && email.endsWith("@users.noreply.github.com")));
+        assertEquals(0, syncService.failedBatchCount());
+    }
+
+    @Test
+    void testLocalAccountSharingTheLoginIsLeftAlone() {
+        userRepository.saveAndFlush(new User("octocat", "{bcrypt}hash", "octocat@example.com", null, null));
+
+        syncService.recordSighting(user("octocat", "other@example.com"));
+        syncService.flush();
+
+        assertNull(jdbcTemplate.queryForObject("select last_seen_at from users where username = 'octocat'",
+                java.sql.Timestamp.class));
+        assertEquals(1, userRepository.count());
+        assertEquals(0, syncService.insertedCount());
+        assertEquals(0, syncService.failedBatchCount());
+    }
+
+    @Test
+    void testNoCacheWithoutTheUserCacheRegions() {
+        assertFalse(UserCacheConfig.isEnabled(entityManagerFactory));
+    }
+
+    @Test
+    void testFullQueueDropsSightings() {
+        properties.setMaxPending(1);
+        GitHubUserSyncService small = new GitHubUserSyncService(jdbcTemplate,
+                new TransactionTemplate(transactionManager), entityManagerFactory, properties);
+
+        small.recordSighting(user("octocat", null));
+        small.recordSighting(user("hubot", null));
+
+        assertEquals(1, small.pendingCount());
+        assertEquals(1, small.droppedCount());
+    }
+
+    private static GitHubTokenAuthenticationFilter.GitHubUser user(String login, String email) {
+        return new GitHubTokenAuthenticationFilter.GitHubUser(login, null, email, null);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingService hashingService;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (hashingService != null) {
+            hashingService.close();
+        }
+    }
+
+    @Test
+    void testCalibrationDoublesUpToTheTarget() {
+        // 20 ms at strength 10: 40 ms at 11, 80 ms at 12, 160 ms at 13
+        assertEquals(12, PasswordHashingService.calibrateStrength(Duration.ofMillis(100), 10, 16,
+                strength -> Duration.ofMillis(20).toNanos()));
+        assertEquals(14, PasswordHashingService.calibrateStrength(Duration.ofSeconds(10), 10, 14,
+                strength -> Duration.ofMillis(20).toNanos()));
+        assertEquals(10, PasswordHashingService.calibrateStrength(Duration.ofMillis(100), 10, 16,
+                strength -> Duration.ofMillis(500).toNanos()));
+    }
+
+    @Test
+    void testHashesRunOnTheHashingThreads() {
+        hashingService = service(2, 4, new ThreadNameEncoder());
+
+        assertTrue(hashingService.encode("password").startsWith("password-hashing-"));
+        assertTrue(hashingService.matches("password", "encoded"));
+        assertEquals(2, hashingService.threadCount());
+    }
+
+    @Test
+    void testSaturatedPoolRefusesRatherThanQueueing() throws Exception {
+        hashingService = service(1, 1, new BlockingEncoder());
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hashingService.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hashingService.encode("second"));
+        while (hashingService.queuedCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingBusyException.class, () -> hashingService.encode("third"));
+        assertEquals(1, hashingService.rejectedCount());
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static PasswordHashingService service(int threads, int queueCapacity, PasswordEncoder encoder) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        return new PasswordHashingService(encoder, properties);
+    }
+
+    private static class ThreadNameEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return Thread.currentThread().getName().startsWith("password-hashing-");
+        }
+    }
+
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import com.example.springsecurityoauth2rest.config.UserCacheConfig;
+import com.example.springsecurityoauth2rest.config.UserSyncProperties;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.example.springsecurityoauth2rest.security.GitHubTokenAuthenticationFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: the second-level cache is only written when a transaction commits
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserCacheConfig.class, UserService.class})
+class UserCacheTest {
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        @Bean
+        PasswordHashingService passwordHashingService() {
+            return new PasswordHashingService(new BCryptPasswordEncoder(4), new PasswordHashingProperties());
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testCacheIsOnWithItsOwnRegions() {
+        assertTrue(UserCacheConfig.isEnabled(entityManagerFactory));
+        assertNotNull(statistics.getDomainDataRegionStatistics(User.CACHE_REGION));
+    }
+
+    @Test
+    void testRepeatedLookupsAreServedFromTheCache() {
+        User user = userService.createUser(new User("octocat", "password", "octocat@example.com", "The", "Octocat"));
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+
+        userService.getUserById(user.getId());
+        userService.getUserByUsername("octocat");
+        long statements = statistics.getPrepareStatementCount();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("octocat", userService.getUserById(user.getId()).orElseThrow().getUsername());
+            assertEquals(user.getId(), userService.getUserByUsername("octocat").orElseThrow().getId());
+        }
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(User.CACHE_REGION).getHitCount() >= 10);
+        assertTrue(statistics.getDomainDataRegionStatistics(User.NATURAL_ID_CACHE_REGION).getHitCount() >= 10);
+    }
+
+    @Test
+    void testUpdatesReplaceTheCachedUser() {
+        User user = userService.createUser(new User("octocat", "password", "octocat@example.com", "The", "Octocat"));
+        userService.getUserById(user.getId());
+
+        userService.patchUser(user.getId(), new UserPatch("Mona", null, null, null, null), user.getVersion());
+
+        User cached = userService.getUserById(user.getId()).orElseThrow();
+        assertEquals("Mona", cached.getFirstName());
+        assertEquals(user.getVersion() + 1, cached.getVersion());
+
+        cached.setLastName("Lisa");
+        userService.updateUser(cached);
+
+        assertEquals("Lisa", userService.getUserByUsername("octocat").orElseThrow().getLastName());
+    }
+
+    @Test
+    void testDeletesEvictTheUser() {
+        User octocat = userService.createUser(new User("octocat", "password", "octocat@example.com", null, null));
+        User hubot = userService.createUser(new User("hubot", "password", "hubot@example.com", null, null));
+        User mona = userService.createUser(new User("monalisa", "password", "mona@example.com", null, null));
+        for (User user : List.of(octocat, hubot, mona)) {
+            userService.getUserById(user.getId());
+            userService.getUserByUsername(user.getUsername());
+        }
+
+        assertEquals(1, userService.deleteUser(octocat.getId()));
+        assertEquals(2, userService.deleteUsers(List.of(hubot.getId(), mona.getId())));
+
+        for (User user : List.of(octocat, hubot, mona)) {
+            assertTrue(userService.getUserById(user.getId()).isEmpty());
+            assertTrue(userService.getUserByUsername(user.getUsername()).isEmpty());
+        }
+    }
+
+    @Test
+    void testGitHubSightingEvictsTheUser() {
+        // A row the sync created earlier; it only updates its own rows
+        User user = userRepository.saveAndFlush(
+                new User("octocat", GitHubUserSyncService.NO_PASSWORD, "octocat@example.com", null, null));
+        assertNull(userService.getUserById(user.getId()).orElseThrow().getLastSeenAt());
+        GitHubUserSyncService syncService = new GitHubUserSyncService(jdbcTemplate,
+                new TransactionTemplate(transactionManager), entityManagerFactory, new UserSyncProperties());
+        try {
+            syncService.recordSighting(new GitHubTokenAuthenticationFilter.GitHubUser("octocat", null, null, null));
+            syncService.flush();
+        } finally {
+            syncService.close();
+        }
+
+        assertNotNull(userService.getUserById(user.getId()).orElseThrow().getLastSeenAt());
+    }
+}
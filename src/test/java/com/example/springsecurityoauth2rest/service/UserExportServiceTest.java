@@ -0,0 +1,87 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class UserExportServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private UserExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new UserExportService(userRepository, objectMapper);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            users.add(new User("user" + i, "secret", "user" + i + "@example.com", "User", String.valueOf(i)));
+        }
+        User quoted = new User("octocat", "secret", "octocat@example.com", "Mona, \"The\"", "Lisa\nCat");
+        quoted.setLastSeenAt(Instant.parse("2026-01-01T10:00:00Z"));
+        users.add(quoted);
+        userRepository.saveAllAndFlush(users);
+    }
+
+    @Test
+    void testNdjsonHasOneObjectPerLineWithoutPasswords() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        UserExportService.ExportResult result = exportService.export(UserExportService.Format.NDJSON, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(251, result.rows());
+        assertEquals(251, lines.length);
+        JsonNode last = objectMapper.readTree(lines[250]);
+        assertEquals("octocat", last.get("username").asText());
+        assertEquals("2026-01-01T10:00:00Z", last.get("lastSeenAt").asText());
+        assertFalse(last.has("password"));
+        assertSame(result, exportService.getLastExport());
+    }
+
+    @Test
+    void testCsvQuotesFieldsThatNeedIt() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(UserExportService.Format.CSV, false, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("id,username,email,firstName,lastName,role,enabled,lastSeenAt\r\n"));
+        assertTrue(csv.contains(",user0,user0@example.com,User,0,USER,true,\r\n"));
+        assertTrue(csv.contains(",octocat,octocat@example.com,\"Mona, \"\"The\"\"\",\"Lisa\nCat\",USER,true,2026-01-01T10:00:00Z\r\n"));
+        assertFalse(csv.contains("secret"));
+    }
+
+    @Test
+    void testGzipOutputDecompressesToTheSameExport() throws Exception {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        exportService.export(UserExportService.Format.NDJSON, false, plain);
+        exportService.export(UserExportService.Format.NDJSON, true, compressed);
+
+        byte[] decompressed = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).readAllBytes();
+        assertArrayEquals(plain.toByteArray(), decompressed);
+        assertTrue(compressed.size() < plain.size());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import com.example.springsecurityoauth2rest.dto.UserImportRow;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserImportServiceTest {
+
+    private static final String HASH = "$2a$04$abcdefghijklmnopqrstuuOmr8qWnWAO2HqwEr5CHGRpfhMn7XcAK";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final PasswordHashingService passwordHashingService =
+            new PasswordHashingService(passwordEncoder, new PasswordHashingProperties());
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = importService(passwordHashingService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.close();
+    }
+
+    @Test
+    void testImportsEveryValidRowWithEncodedPasswords() {
+        List<UserImportRow> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            rows.add(row("user" + i, "user" + i + "@example.com"));
+        }
+
+        UserImportService.ImportReport report = importService.importUsers(rows.iterator());
+
+        assertEquals(250, report.count(UserImportService.Status.CREATED));
+        assertEquals(250, userRepository.count());
+        UserImportService.RowResult last = report.rows().get(249);
+        assertEquals(250, last.line());
+        User user = userRepository.findById(last.id()).orElseThrow();
+        assertEquals("user249", user.getUsername());
+        assertTrue(passwordEncoder.matches("password", user.getPassword()));
+        // Ids follow the input order
+        assertTrue(report.rows().get(0).id() < last.id());
+    }
+
+    @Test
+    void testReportsDuplicatesAndInvalidRowsWithoutInsertingThem() {
+        userRepository.saveAndFlush(new User("octocat", "secret", "octocat@example.com", null, null));
+        List<UserImportRow> rows = List.of(
+                row("octocat", "other@example.com"),
+                row("hubot", "octocat@example.com"),
+                row("mona", "mona@example.com"),
+                row("mona", "mona2@example.com"),
+                row("lisa", "mona@example.com"),
+                row("ab", "not-an-email"),
+                new UserImportRow("nopass", "nopass@example.com", null, null, null, null, null),
+                new UserImportRow("hashed", "hashed@example.com", null, HASH, null, null, "admin"),
+                new UserImportRow("badhash", "badhash@example.com", null, "plain", null, null, null),
+                new UserImportRow("root", "root@example.com", "password", null, null, null, "ROOT"));
+
+        UserImportService.ImportReport report = importService.importUsers(rows.iterator());
+
+        List<UserImportService.Status> statuses = report.rows().stream().map(UserImportService.RowResult::status).toList();
+        assertEquals(List.of(
+                UserImportService.Status.DUPLICATE_USERNAME,
+                UserImportService.Status.DUPLICATE_EMAIL,
+                UserImportService.Status.CREATED,
+                UserImportService.Status.DUPLICATE_USERNAME,
+                UserImportService.Status.DUPLICATE_EMAIL,
+                UserImportService.Status.INVALID,
+                UserImportService.Status.INVALID,
+                UserImportService.Status.CREATED,
+                UserImportService.Status.INVALID,
+                UserImportService.Status.INVALID), statuses);
+        assertTrue(report.rows().get(5).message().contains("email"));
+        assertTrue(report.rows().get(5).message().contains("username"));
+
+        User hashed = userRepository.findByUsername("hashed").orElseThrow();
+        assertEquals(HASH, hashed.getPassword());
+        assertEquals("ADMIN", hashed.getRole());
+        assertEquals(3, userRepository.count());
+    }
+
+    @Test
+    void testUnreadableRowStopsTheImportAfterEarlierRows() {
+        List<UserImportRow> rows = List.of(row("octocat", "octocat@example.com"), row("hubot", "hubot@example.com"));
+        Iterator<UserImportRow> source = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public UserImportRow next() {
+                if (next == rows.size()) {
+                    throw new IllegalStateException("Unexpected character");
+                }
+                return rows.get(next++);
+            }
+        };
+
+        UserImportService.ImportReport report = importService.importUsers(source);
+
+        assertEquals(3, report.rows().size());
+        assertEquals(2, report.count(UserImportService.Status.CREATED));
+        assertEquals(3, report.rows().get(2).line());
+        assertEquals(UserImportService.Status.INVALID, report.rows().get(2).status());
+        assertEquals(2, userRepository.count());
+    }
+
+    @Test
+    void testInsertsAreBatchedAndUniquenessCheckedPerBatch() {
+        List<UserImportRow> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(row("user" + i, "user" + i + "@example.com"));
+        }
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        importService.importUsers(rows.iterator());
+
+        // Per batch of 100: two existence queries and one insert batch; ids come 50 per sequence call
+        assertEquals(6, statistics.getQueryExecutionCount());
+        assertEquals(300, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 20,
+                "expected batched inserts, prepared " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void testRowFailsWhenPasswordHashingIsSaturated() {
+        PasswordHashingService busy = mock(PasswordHashingService.class);
+        when(busy.encode(anyString())).thenReturn("{noop}password");
+        when(busy.encode("busy")).thenThrow(new PasswordHashingBusyException(null));
+        List<UserImportRow> rows = List.of(
+                row("octocat", "octocat@example.com"),
+                new UserImportRow("hubot", "hubot@example.com", "busy", null, null, null, null),
+                row("mona", "mona@example.com"));
+
+        UserImportService.ImportReport report = importService(busy).importUsers(rows.iterator());
+
+        assertEquals(List.of(UserImportService.Status.CREATED, UserImportService.Status.FAILED,
+                UserImportService.Status.CREATED), report.rows().stream().map(UserImportService.RowResult::status).toList());
+        assertEquals(PasswordHashingBusyException.MESSAGE, report.rows().get(1).message());
+        assertTrue(userRepository.findByUsername("hubot").isEmpty());
+        assertEquals(2, userRepository.count());
+    }
+
+    private UserImportService importService(PasswordHashingService hashingService) {
+        return new UserImportService(userRepository, entityManager, new TransactionTemplate(transactionManager),
+                hashingService, Validation.buildDefaultValidatorFactory().getValidator(), 100);
+    }
+
+    private static UserImportRow row(String username, String email) {
+        return new UserImportRow(username, email, "password", null, null, null, null);
+    }
+}
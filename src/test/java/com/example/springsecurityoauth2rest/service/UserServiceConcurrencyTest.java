@@ -0,0 +1,103 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: each create has to commit on its own for the threads to race
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(UserService.class)
+class UserServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        @Bean
+        PasswordHashingService passwordHashingService() {
+            // Room for every thread, so none is turned away before reaching the database
+            PasswordHashingProperties properties = new PasswordHashingProperties();
+            properties.setQueueCapacity(THREADS);
+            return new PasswordHashingService(new BCryptPasswordEncoder(4), properties);
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testConcurrentCreatesOfOneUsernameLetExactlyOneThrough() throws Exception {
+        List<String> outcomes = createConcurrently(i -> new User("octocat", "password", "octocat" + i + "@example.com", null, null));
+
+        assertEquals(1, outcomes.stream().filter("created"::equals).count());
+        assertEquals(THREADS - 1, outcomes.stream().filter(DuplicateUserException.USERNAME_TAKEN::equals).count());
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void testConcurrentCreatesOfOneEmailLetExactlyOneThrough() throws Exception {
+        List<String> outcomes = createConcurrently(i -> new User("user" + i, "password", "shared@example.com", null, null));
+
+        assertEquals(1, outcomes.stream().filter("created"::equals).count());
+        assertEquals(THREADS - 1, outcomes.stream().filter(DuplicateUserException.EMAIL_IN_USE::equals).count());
+        assertEquals(1, userRepository.count());
+    }
+
+    private List<String> createConcurrently(IntFunction<User> users) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                User user = users.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userService.createUser(user);
+                        return "created";
+                    } catch (DuplicateUserException e) {
+                        return e.getMessage();
+                    }
+                }));
+            }
+            start.countDown();
+            List<String> outcomes = new ArrayList<>();
+            for (Future<String> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
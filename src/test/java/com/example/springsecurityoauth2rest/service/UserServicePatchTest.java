@@ -0,0 +1,115 @@
+package com.example.springsecurityoauth2rest.service;
+
+import com.example.springsecurityoauth2rest.config.PasswordHashingProperties;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.entity.User;
+import com.example.springsecurityoauth2rest.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.springsecurityoauth2rest.service.UserServicePatchTest$RecordingStatementInspector")
+@Import(UserService.class)
+class UserServicePatchTest {
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        @Bean
+        PasswordHashingService passwordHashingService() {
+            return new PasswordHashingService(new BCryptPasswordEncoder(4), new PasswordHashingProperties());
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        id = userRepository.saveAndFlush(new User("octocat", "{bcrypt}hash", "octocat@example.com", "Mona", "Lisa")).getId();
+        entityManager.clear();
+        RecordingStatementInspector.statements.clear();
+    }
+
+    @Test
+    void testUpdateSetsOnlyChangedColumnsAndChecksVersion() {
+        User patched = userService.patchUser(id, new UserPatch("Monalisa", null, null, null, null), 0).orElseThrow();
+
+        List<String> updates = updates();
+        assertEquals(1, updates.size());
+        String update = updates.get(0);
+        String assignments = update.substring(update.indexOf(" set ") + 5, update.indexOf(" where "));
+        assertEquals(List.of("first_name=?", "version=?"), List.of(assignments.split(",")));
+        assertTrue(update.endsWith("where id=? and version=?"), update);
+        assertEquals(1L, patched.getVersion());
+    }
+
+    @Test
+    void testPatchThatChangesNothingWritesNothing() {
+        User patched = userService.patchUser(id, new UserPatch("Mona", "Lisa", null, true, null), 0).orElseThrow();
+
+        assertTrue(updates().isEmpty());
+        assertEquals(0L, patched.getVersion());
+    }
+
+    @Test
+    void testEditFromStaleVersionIsRejected() {
+        userService.patchUser(id, new UserPatch(null, null, "mona@example.com", null, null), 0);
+        entityManager.clear();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userService.patchUser(id, new UserPatch("Stale", null, null, null, null), 0));
+        entityManager.clear();
+        User user = userRepository.findById(id).orElseThrow();
+        assertEquals("Mona", user.getFirstName());
+        assertEquals("mona@example.com", user.getEmail());
+        assertEquals(1L, user.getVersion());
+    }
+
+    @Test
+    void testEmailTakenByAnotherUserIsRejected() {
+        userRepository.saveAndFlush(new User("hubot", "{bcrypt}hash", "hubot@example.com", null, null));
+
+        DuplicateUserException e = assertThrows(DuplicateUserException.class,
+                () -> userService.patchUser(id, new UserPatch(null, null, "hubot@example.com", null, null), 0));
+        assertEquals(DuplicateUserException.EMAIL_IN_USE, e.getMessage());
+    }
+
+    private static List<String> updates() {
+        return RecordingStatementInspector.statements.stream().filter(sql -> sql.startsWith("update users")).toList();
+    }
+}
@@ -1,18 +1,27 @@
 package com.example.springsecurityoauth2rest.service;
 
+import com.example.springsecurityoauth2rest.dto.UserPage;
+import com.example.springsecurityoauth2rest.dto.UserPatch;
+import com.example.springsecurityoauth2rest.dto.UserSummary;
 import com.example.springsecurityoauth2rest.entity.User;
 import com.example.springsecurityoauth2rest.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,7 +34,7 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @InjectMocks
     private UserService userService;
@@ -53,6 +62,53 @@ class UserServiceTest {
         verify(userRepository).findAll();
     }
 
+    @Test
+    void testListUsersFirstPage() {
+        // Arrange
+        when(userRepository.findSummariesAfter(0L, Limit.of(3)))
+                .thenReturn(List.of(summary(1), summary(2), summary(5)));
+
+        // Act
+        UserPage page = userService.listUsers(null, 2);
+
+        // Assert
+        assertEquals(List.of(summary(1), summary(2)), page.users());
+        assertEquals(2L, UserService.decodeCursor(page.nextCursor()));
+    }
+
+    @Test
+    void testListUsersLastPage() {
+        // Arrange
+        String cursor = UserService.encodeCursor(2);
+        when(userRepository.findSummariesAfter(2L, Limit.of(3))).thenReturn(List.of(summary(5)));
+
+        // Act
+        UserPage page = userService.listUsers(cursor, 2);
+
+        // Assert
+        assertEquals(List.of(summary(5)), page.users());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testListUsersClampsPageSize() {
+        // Arrange
+        when(userRepository.findSummariesAfter(0L, Limit.of(501))).thenReturn(List.of());
+
+        // Act
+        userService.listUsers("", 100_000);
+
+        // Assert
+        verify(userRepository).findSummariesAfter(0L, Limit.of(501));
+    }
+
+    @Test
+    void testListUsersRejectsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> userService.listUsers("not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.listUsers("aWQ6eHl6", 10));
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void testGetUserById() {
         // Arrange
@@ -83,7 +139,7 @@ class UserServiceTest {
     @Test
     void testGetUserByUsername() {
         // Arrange
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByNaturalUsername("testuser")).thenReturn(Optional.of(testUser));
 
         // Act
         Optional<User> actualUser = userService.getUserByUsername("testuser");
@@ -91,20 +147,20 @@ class UserServiceTest {
         // Assert
         assertTrue(actualUser.isPresent());
         assertEquals(testUser, actualUser.get());
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findByNaturalUsername("testuser");
     }
 
     @Test
     void testGetUserByUsernameNotFound() {
         // Arrange
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(userRepository.findByNaturalUsername("nonexistent")).thenReturn(Optional.empty());
 
         // Act
         Optional<User> actualUser = userService.getUserByUsername("nonexistent");
 
         // Assert
         assertFalse(actualUser.isPresent());
-        verify(userRepository).findByUsername("nonexistent");
+        verify(userRepository).findByNaturalUsername("nonexistent");
     }
 
     @Test
@@ -141,8 +197,8 @@ class UserServiceTest {
         User savedUser = new User("newuser", "encodedpassword", "new@example.com", "New", "User");
         savedUser.setId(2L);
         
-        when(passwordEncoder.encode("plainpassword")).thenReturn("encodedpassword");
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(passwordHashingService.encode("plainpassword")).thenReturn("encodedpassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
 
         // Act
         User createdUser = userService.createUser(newUser);
@@ -150,8 +206,26 @@ class UserServiceTest {
         // Assert
         assertEquals(savedUser, createdUser);
         assertEquals("encodedpassword", newUser.getPassword()); // Password should be encoded
-        verify(passwordEncoder).encode("plainpassword");
-        verify(userRepository).save(newUser);
+        verify(passwordHashingService).encode("plainpassword");
+        verify(userRepository).saveAndFlush(newUser);
+    }
+
+    @Test
+    void testCreateUserTranslatesUniqueConstraintViolations() {
+        // Arrange
+        User newUser = new User("newuser", "plainpassword", "new@example.com", "New", "User");
+        when(passwordHashingService.encode("plainpassword")).thenReturn("encodedpassword");
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(violation("PUBLIC.UK_USERS_USERNAME_INDEX_4"))
+                .thenThrow(violation("PUBLIC.UK_USERS_EMAIL_INDEX_4"))
+                .thenThrow(violation("PUBLIC.CONSTRAINT_OTHER"));
+
+        // Act & Assert
+        assertEquals(DuplicateUserException.USERNAME_TAKEN,
+                assertThrows(DuplicateUserException.class, () -> userService.createUser(newUser)).getMessage());
+        assertEquals(DuplicateUserException.EMAIL_IN_USE,
+                assertThrows(DuplicateUserException.class, () -> userService.createUser(newUser)).getMessage());
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(newUser));
     }
 
     @Test
@@ -170,16 +244,63 @@ class UserServiceTest {
         verify(userRepository).save(updatedUser);
     }
 
+    @Test
+    void testPatchUserAppliesOnlyGivenFields() {
+        // Arrange
+        testUser.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        Optional<User> patched = userService.patchUser(1L, new UserPatch("Patched", null, null, false, null), 3L);
+
+        // Assert
+        assertSame(testUser, patched.orElseThrow());
+        assertEquals("Patched", testUser.getFirstName());
+        assertEquals("User", testUser.getLastName());
+        assertEquals("test@example.com", testUser.getEmail());
+        assertFalse(testUser.isEnabled());
+        verify(userRepository).flush();
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testPatchUserRejectsStaleVersion() {
+        // Arrange
+        testUser.setVersion(4L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userService.patchUser(1L, new UserPatch("Patched", null, null, null, null), 3L));
+        assertNotEquals("Patched", testUser.getFirstName());
+        verify(userRepository, never()).flush();
+    }
+
     @Test
     void testDeleteUser() {
         // Arrange
-        doNothing().when(userRepository).deleteById(1L);
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
 
         // Act
-        userService.deleteUser(1L);
+        int deleted = userService.deleteUser(1L);
 
         // Assert
-        verify(userRepository).deleteById(1L);
+        assertEquals(1, deleted);
+        verify(userRepository).deleteUserById(1L);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void testDeleteUsers() {
+        // Arrange
+        when(userRepository.deleteUsersByIds(Set.of(1L, 2L))).thenReturn(2);
+
+        // Act & Assert
+        assertEquals(2, userService.deleteUsers(List.of(1L, 2L, 2L)));
+        assertEquals(0, userService.deleteUsers(List.of()));
+        List<Long> tooMany = LongStream.rangeClosed(1, UserService.MAX_BULK_DELETE + 1).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUsers(tooMany));
+        verify(userRepository).deleteUsersByIds(Set.of(1L, 2L));
     }
 
     @Test
@@ -233,4 +354,13 @@ class UserServiceTest {
         assertFalse(exists);
         verify(userRepository).existsByEmail("nonexistent@example.com");
     }
+
+    private static DataIntegrityViolationException violation(String constraint) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", new SQLException(), constraint));
+    }
+
+    private static UserSummary summary(long id) {
+        return new UserSummary(id, "user" + id, "user" + id + "@example.com", null, null, "USER", true, null);
+    }
 }